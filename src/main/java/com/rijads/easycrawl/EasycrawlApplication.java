@@ -1,12 +1,18 @@
 package com.rijads.easycrawl;
 
+import com.rijads.easycrawl.config.JobWorkerProperties;
+import com.rijads.easycrawl.config.PartitionProperties;
 import com.rijads.easycrawl.config.RsaKeyProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
-@EnableConfigurationProperties(RsaKeyProperties.class)
+@EnableConfigurationProperties({
+        RsaKeyProperties.class,
+        PartitionProperties.class,
+        JobWorkerProperties.class
+})
 @SpringBootApplication
 @EnableScheduling
 public class EasycrawlApplication {
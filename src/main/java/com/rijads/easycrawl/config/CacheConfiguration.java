@@ -0,0 +1,39 @@
+package com.rijads.easycrawl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Local caches for rarely changing reference data: brands, categories and the dropdowns.
+ *
+ * <p>Caches are bounded Caffeine caches with a time to live as a safety net; the services that
+ * change the underlying data evict them explicitly. Evictions triggered inside a transaction are
+ * applied after it commits, so a concurrent read can not put the old data back in between.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+    public static final String BRANDS = "brands";
+    public static final String CATEGORIES = "categories";
+    public static final String CATEGORY_DROPDOWN = "categoryDropdown";
+    public static final String WEBSITE_DROPDOWN = "websiteDropdown";
+    public static final String CONFIG_DROPDOWN = "configDropdown";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${cache.reference-data.spec:maximumSize=1000,expireAfterWrite=1h,recordStats}") String spec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheSpecification(spec);
+        cacheManager.setAllowNullValues(false);
+        // Fixed set of caches, a typo in a cache name fails instead of creating a new cache
+        cacheManager.setCacheNames(List.of(BRANDS, CATEGORIES, CATEGORY_DROPDOWN, WEBSITE_DROPDOWN, CONFIG_DROPDOWN));
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
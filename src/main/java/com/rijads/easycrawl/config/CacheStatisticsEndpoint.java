@@ -0,0 +1,59 @@
+package com.rijads.easycrawl.config;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Actuator endpoint /actuator/cachestats with hit and eviction statistics of every local cache
+ */
+@Component
+@Endpoint(id = "cachestats")
+public class CacheStatisticsEndpoint {
+    private final CacheManager cacheManager;
+
+    public CacheStatisticsEndpoint(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public record CacheStatistics(
+            long size,
+            long requests,
+            long hits,
+            long misses,
+            double hitRate,
+            long evictions,
+            double averageLoadMillis) {}
+
+    @ReadOperation
+    public Map<String, CacheStatistics> cacheStatistics() {
+        Map<String, CacheStatistics> statistics = new TreeMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof TransactionAwareCacheDecorator decorator) {
+                cache = decorator.getTargetCache();
+            }
+            if (cache instanceof CaffeineCache caffeineCache) {
+                com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
+                CacheStats stats = nativeCache.stats();
+                statistics.put(name, new CacheStatistics(
+                        nativeCache.estimatedSize(),
+                        stats.requestCount(),
+                        stats.hitCount(),
+                        stats.missCount(),
+                        stats.hitRate(),
+                        stats.evictionCount(),
+                        stats.averageLoadPenalty() / 1_000_000.0));
+            }
+        }
+        return statistics;
+    }
+}
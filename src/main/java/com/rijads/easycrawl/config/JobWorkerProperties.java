@@ -0,0 +1,35 @@
+package com.rijads.easycrawl.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Settings for the in-process job workers.
+ *
+ * @param workerId identity recorded on claimed jobs, defaults to pid@hostname when blank
+ * @param concurrency maximum number of jobs of each type running at once on this instance
+ * @param perWebsiteLimit maximum number of running jobs of one type per website, across instances
+ * @param leaseTimeout how long a running job may go without a heartbeat before it is reaped
+ * @param maxAttempts how many times an internal job is claimed before a lost lease fails it
+ * @param mappingShardThreshold unmapped item count from which a global mapping job is split
+ *     into one child job per crawler config
+ */
+@ConfigurationProperties(prefix = "jobs")
+public record JobWorkerProperties(
+        @DefaultValue("") String workerId,
+        Map<String, Integer> concurrency,
+        @DefaultValue("1") int perWebsiteLimit,
+        @DefaultValue("2m") Duration leaseTimeout,
+        @DefaultValue("3") int maxAttempts,
+        @DefaultValue("5000") int mappingShardThreshold) {
+
+    public int concurrencyFor(String jobType) {
+        if (concurrency == null) {
+            return 1;
+        }
+        return Math.max(1, concurrency.getOrDefault(jobType, 1));
+    }
+}
@@ -0,0 +1,23 @@
+package com.rijads.easycrawl.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Retention policy for the monthly partitions of price_history and crawler_raw.
+ * A retention of 0 months keeps partitions forever.
+ */
+@ConfigurationProperties(prefix = "partition")
+public record PartitionProperties(
+        @DefaultValue("3") int monthsAhead,
+        @DefaultValue("0") int priceHistoryRetentionMonths,
+        @DefaultValue("6") int crawlerRawRetentionMonths,
+        @DefaultValue("DETACH") RetentionMode retentionMode) {
+
+    public enum RetentionMode {
+        /** Detach expired partitions and keep them as standalone archive tables */
+        DETACH,
+        /** Detach and drop expired partitions */
+        DROP
+    }
+}
@@ -1,12 +1,16 @@
 package com.rijads.easycrawl.controller;
 
 import com.rijads.easycrawl.dto.CrawlerRawDTO;
+import com.rijads.easycrawl.dto.CursorPageDTO;
 import com.rijads.easycrawl.model.CrawlerRaw;
 import com.rijads.easycrawl.service.CrawlerRawService;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,6 +21,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -25,9 +31,13 @@ import java.util.List;
 @RequestMapping(value = "/crawler-raw")
 public class CrawlRawController {
     private final CrawlerRawService service;
+    private final long streamTimeoutMs;
 
-    public CrawlRawController(CrawlerRawService service) {
+    public CrawlRawController(
+            CrawlerRawService service,
+            @Value("${exports.stream-timeout-ms:1800000}") long streamTimeoutMs) {
         this.service = service;
+        this.streamTimeoutMs = streamTimeoutMs;
     }
 
     @GetMapping
@@ -47,6 +57,31 @@ public class CrawlRawController {
                 configCode,website, title, minPrice, maxPrice, createdFrom, createdTo,jobId, pageable);
     }
 
+    /**
+     * Keyset-paginated listing with the same filters, for paging through the whole table. Sorts
+     * by id or created, newest first unless direction=ASC; later slices only need the cursor.
+     */
+    @GetMapping("/cursor")
+    public CursorPageDTO<CrawlerRawDTO> getCrawlRawSlice(
+            @RequestParam(required = false) String configCode,
+            @RequestParam(required = false) String website,
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    LocalDateTime createdTo,
+            @RequestParam(required = false) Double jobId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Sort.Direction direction,
+            @RequestParam(required = false) Integer size) {
+        return service.getCrawlerRawSlice(
+                configCode, website, title, minPrice, maxPrice, createdFrom, createdTo, jobId,
+                cursor, sort, direction, size);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<CrawlerRawDTO> getCrawlerRawById(@PathVariable Integer id) {
         return service.getCrawlerRawById(id)
@@ -58,6 +93,13 @@ public class CrawlRawController {
         return service.getAllCrawlerRawsByJobId(id);
     }
 
+    /** Raw items of a job as NDJSON, streamed while they are read */
+    @GetMapping(value = "/by-job-id/{id}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCrawlerRawsByJobId(
+            @PathVariable Integer id, WebRequest request) {
+        return NdjsonStreams.stream(request, streamTimeoutMs, out -> service.streamCrawlerRawsByJobId(id, out));
+    }
+
     @PostMapping
     public CrawlerRawDTO createCrawlerRaw(@RequestBody CrawlerRawDTO crawlerRaw) {
         return service.saveCrawlerRaw(crawlerRaw);
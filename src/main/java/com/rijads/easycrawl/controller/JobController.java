@@ -1,12 +1,18 @@
 package com.rijads.easycrawl.controller;
 
+import com.rijads.easycrawl.dto.CursorPageDTO;
 import com.rijads.easycrawl.dto.JobDTO;
 import com.rijads.easycrawl.dto.JobErrorDTO;
+import com.rijads.easycrawl.service.JobProgressService;
 import com.rijads.easycrawl.service.JobService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -18,9 +24,11 @@ import java.util.Map;
 @RequestMapping("/api/jobs")
 public class JobController {
     private final JobService jobService;
+    private final JobProgressService jobProgressService;
 
-    public JobController(JobService jobService) {
+    public JobController(JobService jobService, JobProgressService jobProgressService) {
         this.jobService = jobService;
+        this.jobProgressService = jobProgressService;
     }
 
     /**
@@ -34,6 +42,20 @@ public class JobController {
         return jobService.getAllJobs(jobType, status, crawlerConfigCode, page);
     }
 
+    /**
+     * Get jobs one keyset-paginated slice at a time, sorted by id or created
+     */
+    @GetMapping("/cursor")
+    public CursorPageDTO<JobDTO> getJobSlice(@RequestParam(required = false) final String jobType,
+                                             @RequestParam(required = false) final String status,
+                                             @RequestParam(required = false) final String crawlerConfigCode,
+                                             @RequestParam(required = false) final String cursor,
+                                             @RequestParam(required = false) final String sort,
+                                             @RequestParam(required = false) final Sort.Direction direction,
+                                             @RequestParam(required = false) final Integer size) {
+        return jobService.getJobSlice(jobType, status, crawlerConfigCode, cursor, sort, direction, size);
+    }
+
     /**
      * Get jobs by type with pagination
      */
@@ -50,6 +72,59 @@ public class JobController {
         return jobService.getJobById(id);
     }
 
+    /**
+     * Refresh the lease of a running job, returns 404 when the job is not running
+     */
+    @PostMapping("/{id}/heartbeat")
+    public ResponseEntity<JobDTO> heartbeat(@PathVariable Integer id) {
+        JobDTO job = jobService.heartbeat(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Cancel a job. Running jobs stop after their current chunk, keeping the work committed so far.
+     * Returns 409 when the job has already ended.
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<JobDTO> cancel(@PathVariable Integer id) {
+        return controlResponse(id, jobService.cancel(id));
+    }
+
+    /**
+     * Pause a job so it can be resumed later, returns 409 when there is nothing to pause
+     */
+    @PostMapping("/{id}/pause")
+    public ResponseEntity<JobDTO> pause(@PathVariable Integer id) {
+        return controlResponse(id, jobService.pause(id));
+    }
+
+    /**
+     * Resume a paused job, returns 409 when the job is not paused
+     */
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<JobDTO> resume(@PathVariable Integer id) {
+        return controlResponse(id, jobService.resume(id));
+    }
+
+    private ResponseEntity<JobDTO> controlResponse(Integer id, boolean applied) {
+        JobDTO job = jobService.getJobById(String.valueOf(id));
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return applied ? ResponseEntity.ok(job) : ResponseEntity.status(HttpStatus.CONFLICT).body(job);
+    }
+
+    /**
+     * Stream the progress of a job as server-sent events until it reaches a final status
+     */
+    @GetMapping(value = "/{id}/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamProgress(@PathVariable Integer id) {
+        if (jobProgressService.getProgress(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(jobProgressService.stream(id));
+    }
+
     /**
      * Get all errors for a specific job
      */
@@ -71,6 +146,7 @@ public class JobController {
      */
     @PostMapping("/schedule")
     public ResponseEntity<Map<String, Object>> triggerScheduledJobs() {
+        jobService.createScheduledCrawlerJobs();
         jobService.createScheduledJobs();
         return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -0,0 +1,29 @@
+package com.rijads.easycrawl.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Responses for the NDJSON exports. A large export outlasts the default async request timeout,
+ * so each one gets its own instead of raising it for every async request.
+ */
+final class NdjsonStreams {
+
+    private NdjsonStreams() {}
+
+    static ResponseEntity<StreamingResponseBody> stream(
+            WebRequest request, long timeoutMs, StreamingResponseBody body) {
+        // Read when the response body starts async processing, right after the handler returns
+        AsyncWebRequest asyncRequest = WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest();
+        if (asyncRequest != null) {
+            asyncRequest.setTimeout(timeoutMs);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -1,30 +1,55 @@
 package com.rijads.easycrawl.controller;
 
+import com.rijads.easycrawl.dto.CursorPageDTO;
 import com.rijads.easycrawl.dto.GroupedVariantDTO;
 import com.rijads.easycrawl.dto.JobDTO;
 import com.rijads.easycrawl.dto.PriceHistoryDTO;
+import com.rijads.easycrawl.dto.PriceRollupDTO;
+import com.rijads.easycrawl.dto.ProductCompareRequest;
+import com.rijads.easycrawl.dto.ProductComparisonDTO;
 import com.rijads.easycrawl.dto.ProductDTO;
+import com.rijads.easycrawl.dto.ProductSearchResultDTO;
 import com.rijads.easycrawl.dto.ProductVariantDTO;
+import com.rijads.easycrawl.dto.SuggestionDTO;
+import com.rijads.easycrawl.model.PriceRollup;
 import com.rijads.easycrawl.model.ProductCategory;
+import com.rijads.easycrawl.service.PriceRollupService;
+import com.rijads.easycrawl.service.ProductComparisonService;
 import com.rijads.easycrawl.service.ProductService;
 import com.rijads.easycrawl.service.ProductVariantService;
+import com.rijads.easycrawl.service.ResourceVersion;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/products")
 public class ProductController {
     private final ProductService productService;
     private final ProductVariantService productVariantService;
+    private final PriceRollupService priceRollupService;
+    private final ProductComparisonService productComparisonService;
 
-    public ProductController(ProductService productService, ProductVariantService productVariantService) {
+    public ProductController(
+            ProductService productService,
+            ProductVariantService productVariantService,
+            PriceRollupService priceRollupService,
+            ProductComparisonService productComparisonService) {
         this.productService = productService;
         this.productVariantService = productVariantService;
+        this.priceRollupService = priceRollupService;
+        this.productComparisonService = productComparisonService;
     }
 
     /** Search products with various filters - with pagination support */
@@ -38,6 +63,60 @@ public class ProductController {
         return ResponseEntity.ok(res);
     }
 
+    /**
+     * Search products with the same filters one keyset-paginated slice at a time, sorted by id
+     * or name; later slices only need the cursor
+     */
+    @GetMapping("/search/cursor")
+    public ResponseEntity<CursorPageDTO<ProductDTO>> searchProductSlice(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Sort.Direction direction,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(
+                productService.searchProductSlice(name, category, brand, cursor, sort, direction, size));
+    }
+
+    /**
+     * Full-text search over name, brand and model with facet counts for brand, category, store,
+     * price bucket and stock state, served from the search index in one call
+     */
+    @GetMapping(value = "/search", params = "mode=index")
+    public ResponseEntity<ProductSearchResultDTO> searchProductIndex(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String store,
+            @RequestParam(required = false) String price,
+            @RequestParam(required = false) Boolean inStock,
+            Pageable pageable) {
+        return ResponseEntity.ok(
+                productService.searchProductIndex(q, category, brand, store, price, inStock, pageable));
+    }
+
+    /**
+     * Typeahead over brands, models and product names, most stocked first
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(productService.suggest(q, limit));
+    }
+
+    /** Rebuild the product search index from the database */
+    @PostMapping("/search/index/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSearchIndex() {
+        boolean started = productService.rebuildSearchIndex();
+        Map<String, Object> result = Map.of("started", started);
+        return started
+                ? ResponseEntity.accepted().body(result)
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+    }
+
     /** Get product details by ID */
     @GetMapping("/{productId}")
     public ResponseEntity<Page<ProductVariantDTO>> getProduct(
@@ -51,9 +130,10 @@ public class ProductController {
             @RequestParam(required = false) String property2,
             @RequestParam(required = false) String property3,
             @RequestParam(required = false) String property4,
-            Pageable pageable) {
-        Page<ProductVariantDTO> res = productService.getProductById(productId, title, websiteCode, color, inStock, entitySize, property1, property2, property3, property4, pageable);
-        return ResponseEntity.ok(res);
+            Pageable pageable,
+            WebRequest request) {
+        return conditional(request, productService.getProductVersion(productId), () ->
+                productService.getProductById(productId, title, websiteCode, color, inStock, entitySize, property1, property2, property3, property4, pageable));
     }
 
     /**
@@ -121,35 +201,102 @@ public class ProductController {
         return productService.getAllProductGategories();
     }
 
+    /**
+     * Compare several products: cheapest store, current price per store and recent price trend
+     */
+    @PostMapping("/compare")
+    public ResponseEntity<List<ProductComparisonDTO>> compareProducts(@RequestBody ProductCompareRequest request) {
+        return ResponseEntity.ok(productComparisonService.compare(request.getProductIds()));
+    }
+
     /**
      * Get grouped variants for a product with price history
      */
     @GetMapping("/{productId}/grouped-variants")
     public ResponseEntity<List<GroupedVariantDTO>> getGroupedVariants(
-            @PathVariable Integer productId) {
-        List<GroupedVariantDTO> groupedVariants = productVariantService.getGroupedVariants(productId);
-        return ResponseEntity.ok(groupedVariants);
+            @PathVariable Integer productId,
+            WebRequest request) {
+        return conditional(request, productService.getProductVersion(productId), () ->
+                productVariantService.getGroupedVariants(productId));
     }
     
     /**
-     * Get price history for a specific variant
+     * Get price history for a specific variant, downsampled to at most maxPoints entries
      */
     @GetMapping("/variants/{variantId}/price-history")
     public ResponseEntity<List<PriceHistoryDTO>> getVariantPriceHistory(
-            @PathVariable Integer variantId) {
-        List<PriceHistoryDTO> priceHistory = productVariantService.getVariantPriceHistory(variantId);
-        return ResponseEntity.ok(priceHistory);
+            @PathVariable Integer variantId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer maxPoints,
+            WebRequest request) {
+        return conditional(request, productService.getVariantVersion(variantId), () ->
+                productVariantService.getVariantPriceHistory(variantId, from, to, maxPoints));
     }
     
     /**
-     * Get price history for variants with the same title and website
+     * Get price history for variants with the same title and website, downsampled to at most
+     * maxPoints entries
      */
     @GetMapping("/variants/price-history")
     public ResponseEntity<List<PriceHistoryDTO>> getGroupedVariantPriceHistory(
             @RequestParam String title,
-            @RequestParam String websiteCode) {
-        List<PriceHistoryDTO> priceHistory = 
-                productVariantService.getGroupedVariantPriceHistory(title, websiteCode);
-        return ResponseEntity.ok(priceHistory);
+            @RequestParam String websiteCode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer maxPoints,
+            WebRequest request) {
+        return conditional(request, productService.getVariantGroupVersion(title, websiteCode), () ->
+                productVariantService.getGroupedVariantPriceHistory(title, websiteCode, from, to, maxPoints));
+    }
+
+    /**
+     * Get pre-aggregated price buckets across all variants of a product
+     */
+    @GetMapping("/{productId}/price-rollups")
+    public ResponseEntity<List<PriceRollupDTO>> getProductPriceRollups(
+            @PathVariable Integer productId,
+            @RequestParam(defaultValue = "DAY") PriceRollup.Granularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        return conditional(request, productService.getProductVersion(productId), () ->
+                priceRollupService.getProductRollups(productId, granularity, from, to));
+    }
+
+    /**
+     * Get pre-aggregated price buckets for a specific variant
+     */
+    @GetMapping("/variants/{variantId}/price-rollups")
+    public ResponseEntity<List<PriceRollupDTO>> getVariantPriceRollups(
+            @PathVariable Integer variantId,
+            @RequestParam(defaultValue = "DAY") PriceRollup.Granularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        return conditional(request, productService.getVariantVersion(variantId), () ->
+                priceRollupService.getVariantRollups(variantId, granularity, from, to));
+    }
+
+    /**
+     * Answer with 304 when the client's ETag or Last-Modified still matches the version, before
+     * the body is built. Without a version the body is built as usual, so missing resources
+     * fail the way the service reports them.
+     */
+    private static <T> ResponseEntity<T> conditional(
+            WebRequest request, Optional<ResourceVersion> version, Supplier<T> body) {
+        if (version.isEmpty()) {
+            return ResponseEntity.ok(body.get());
+        }
+        ResourceVersion validators = version.get();
+        if (request.checkNotModified(validators.etag(), validators.lastModified())) {
+            // Status and validator headers are already set on the response
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(validators.etag());
+        if (validators.lastModified() >= 0) {
+            response.lastModified(validators.lastModified());
+        }
+        return response.body(body.get());
     }
 }
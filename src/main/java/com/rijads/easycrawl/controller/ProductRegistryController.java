@@ -1,11 +1,17 @@
 package com.rijads.easycrawl.controller;
 
+import com.rijads.easycrawl.dto.CursorPageDTO;
 import com.rijads.easycrawl.model.ProductRegistry;
 import com.rijads.easycrawl.service.ProductRegistryService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Arrays;
 import java.util.List;
@@ -16,9 +22,13 @@ import java.util.Map;
 public class ProductRegistryController {
 
     private final ProductRegistryService productRegistryService;
+    private final long streamTimeoutMs;
 
-    public ProductRegistryController(ProductRegistryService productRegistryService) {
+    public ProductRegistryController(
+            ProductRegistryService productRegistryService,
+            @Value("${exports.stream-timeout-ms:1800000}") long streamTimeoutMs) {
         this.productRegistryService = productRegistryService;
+        this.streamTimeoutMs = streamTimeoutMs;
     }
 
     /** Get all registry entries */
@@ -30,6 +40,18 @@ public class ProductRegistryController {
         return productRegistryService.getAll(type, search, pageable);
     }
 
+    /** Get registry entries one keyset-paginated slice at a time, sorted by id, registryKey or created */
+    @GetMapping("/cursor")
+    public CursorPageDTO<ProductRegistry> getSlice(
+            @RequestParam(required = false) final String type,
+            @RequestParam(required = false) final String search,
+            @RequestParam(required = false) final String cursor,
+            @RequestParam(required = false) final String sort,
+            @RequestParam(required = false) final Sort.Direction direction,
+            @RequestParam(required = false) final Integer size) {
+        return productRegistryService.getSlice(type, search, cursor, sort, direction, size);
+    }
+
     /** Get all registry types */
     @GetMapping("/types")
     public List<String> getRegistryTypes() {
@@ -86,6 +108,12 @@ public class ProductRegistryController {
         List<ProductRegistry> res = productRegistryService.bulkExport();
         return ResponseEntity.ok(res);
     }
+
+    /** Export all registry entries as NDJSON, streamed while they are read */
+    @GetMapping(value = "/bulk-export/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> bulkExportStream(WebRequest request) {
+        return NdjsonStreams.stream(request, streamTimeoutMs, productRegistryService::streamExport);
+    }
     
     /** Batch change registry type for multiple entries */
     @PostMapping("/batch-change-type")
@@ -0,0 +1,29 @@
+package com.rijads.easycrawl.dto;
+
+public class FacetCountDTO {
+    private String value;
+    private long count;
+
+    public FacetCountDTO() {}
+
+    public FacetCountDTO(String value, long count) {
+        this.value = value;
+        this.count = count;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
@@ -21,6 +21,19 @@ public class JobDTO {
     private Boolean testRun;
     private String parameters;
     private String description;
+    private String workerId;
+    private LocalDateTime heartbeatAt;
+    private Integer attempts;
+    private Long leaseAgeSeconds;
+    private Integer sourceJobId;
+    private Integer parentJobId;
+    private Integer itemsMapped;
+    private Integer itemsSkipped;
+    private Integer productsMatched;
+    private Integer pricesRecorded;
+    private Integer itemsTotal;
+    private String controlRequest;
+    private Integer priority;
 
     public Integer getId() {
         return id;
@@ -141,4 +154,108 @@ public class JobDTO {
     public void setDescription(String description) {
         this.description = description;
     }
-}
\ No newline at end of file
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Long getLeaseAgeSeconds() {
+        return leaseAgeSeconds;
+    }
+
+    public void setLeaseAgeSeconds(Long leaseAgeSeconds) {
+        this.leaseAgeSeconds = leaseAgeSeconds;
+    }
+
+    public Integer getSourceJobId() {
+        return sourceJobId;
+    }
+
+    public void setSourceJobId(Integer sourceJobId) {
+        this.sourceJobId = sourceJobId;
+    }
+
+    public Integer getParentJobId() {
+        return parentJobId;
+    }
+
+    public void setParentJobId(Integer parentJobId) {
+        this.parentJobId = parentJobId;
+    }
+
+    public Integer getItemsMapped() {
+        return itemsMapped;
+    }
+
+    public void setItemsMapped(Integer itemsMapped) {
+        this.itemsMapped = itemsMapped;
+    }
+
+    public Integer getItemsSkipped() {
+        return itemsSkipped;
+    }
+
+    public void setItemsSkipped(Integer itemsSkipped) {
+        this.itemsSkipped = itemsSkipped;
+    }
+
+    public Integer getProductsMatched() {
+        return productsMatched;
+    }
+
+    public void setProductsMatched(Integer productsMatched) {
+        this.productsMatched = productsMatched;
+    }
+
+    public Integer getPricesRecorded() {
+        return pricesRecorded;
+    }
+
+    public void setPricesRecorded(Integer pricesRecorded) {
+        this.pricesRecorded = pricesRecorded;
+    }
+
+    public Integer getItemsTotal() {
+        return itemsTotal;
+    }
+
+    public void setItemsTotal(Integer itemsTotal) {
+        this.itemsTotal = itemsTotal;
+    }
+
+    public String getControlRequest() {
+        return controlRequest;
+    }
+
+    public void setControlRequest(String controlRequest) {
+        this.controlRequest = controlRequest;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+}
@@ -0,0 +1,112 @@
+package com.rijads.easycrawl.dto;
+
+public class JobProgressDTO {
+    private Integer jobId;
+    private String status;
+    private boolean live;
+    private Integer total;
+    private Integer processed;
+    private Integer skipped;
+    private Integer newProducts;
+    private Integer newVariants;
+    private Integer pricesRecorded;
+    private Integer percent;
+    private Long elapsedSeconds;
+    private Long etaSeconds;
+
+    public Integer getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(Integer jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public boolean isLive() {
+        return live;
+    }
+
+    public void setLive(boolean live) {
+        this.live = live;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public void setTotal(Integer total) {
+        this.total = total;
+    }
+
+    public Integer getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(Integer processed) {
+        this.processed = processed;
+    }
+
+    public Integer getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(Integer skipped) {
+        this.skipped = skipped;
+    }
+
+    public Integer getNewProducts() {
+        return newProducts;
+    }
+
+    public void setNewProducts(Integer newProducts) {
+        this.newProducts = newProducts;
+    }
+
+    public Integer getNewVariants() {
+        return newVariants;
+    }
+
+    public void setNewVariants(Integer newVariants) {
+        this.newVariants = newVariants;
+    }
+
+    public Integer getPricesRecorded() {
+        return pricesRecorded;
+    }
+
+    public void setPricesRecorded(Integer pricesRecorded) {
+        this.pricesRecorded = pricesRecorded;
+    }
+
+    public Integer getPercent() {
+        return percent;
+    }
+
+    public void setPercent(Integer percent) {
+        this.percent = percent;
+    }
+
+    public Long getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    public void setElapsedSeconds(Long elapsedSeconds) {
+        this.elapsedSeconds = elapsedSeconds;
+    }
+
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public void setEtaSeconds(Long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+}
@@ -0,0 +1,18 @@
+package com.rijads.easycrawl.dto;
+
+import java.util.List;
+
+/**
+ * Request class for comparing several products at once
+ */
+public class ProductCompareRequest {
+    private List<Integer> productIds;
+
+    public List<Integer> getProductIds() {
+        return productIds;
+    }
+
+    public void setProductIds(List<Integer> productIds) {
+        this.productIds = productIds;
+    }
+}
@@ -0,0 +1,64 @@
+package com.rijads.easycrawl.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class ProductComparisonDTO {
+    private ProductDTO product;
+    private StorePriceDTO cheapestStore;
+    private List<StorePriceDTO> stores;
+
+    // Daily buckets of the recent price trend, oldest first
+    private List<PriceRollupDTO> trend;
+    private BigDecimal trendChange;
+    private String trendDirection;
+
+    // Getters and setters
+    public ProductDTO getProduct() {
+        return product;
+    }
+
+    public void setProduct(ProductDTO product) {
+        this.product = product;
+    }
+
+    public StorePriceDTO getCheapestStore() {
+        return cheapestStore;
+    }
+
+    public void setCheapestStore(StorePriceDTO cheapestStore) {
+        this.cheapestStore = cheapestStore;
+    }
+
+    public List<StorePriceDTO> getStores() {
+        return stores;
+    }
+
+    public void setStores(List<StorePriceDTO> stores) {
+        this.stores = stores;
+    }
+
+    public List<PriceRollupDTO> getTrend() {
+        return trend;
+    }
+
+    public void setTrend(List<PriceRollupDTO> trend) {
+        this.trend = trend;
+    }
+
+    public BigDecimal getTrendChange() {
+        return trendChange;
+    }
+
+    public void setTrendChange(BigDecimal trendChange) {
+        this.trendChange = trendChange;
+    }
+
+    public String getTrendDirection() {
+        return trendDirection;
+    }
+
+    public void setTrendDirection(String trendDirection) {
+        this.trendDirection = trendDirection;
+    }
+}
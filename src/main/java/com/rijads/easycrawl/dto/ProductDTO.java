@@ -14,6 +14,34 @@ public class ProductDTO {
     private Integer storeCount;
     private Boolean hasPriceHistory;
 
+    public ProductDTO() {}
+
+    /**
+     * Read model constructor, used by the listing queries in ProductReadRepository
+     */
+    public ProductDTO(
+            Integer id,
+            String name,
+            String brand,
+            String model,
+            String category,
+            String imageUrl,
+            BigDecimal lowestPrice,
+            BigDecimal highestPrice,
+            Integer storeCount,
+            Boolean hasPriceHistory) {
+        this.id = id;
+        this.name = name;
+        this.brand = brand;
+        this.model = model;
+        this.category = category;
+        this.imageUrl = imageUrl;
+        this.lowestPrice = lowestPrice;
+        this.highestPrice = highestPrice;
+        this.storeCount = storeCount;
+        this.hasPriceHistory = hasPriceHistory;
+    }
+
     // Getters and setters
     public Integer getId() {
         return id;
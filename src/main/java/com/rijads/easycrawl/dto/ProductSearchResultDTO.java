@@ -0,0 +1,53 @@
+package com.rijads.easycrawl.dto;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ProductSearchResultDTO {
+    private List<ProductDTO> hits;
+    private long totalHits;
+    private int page;
+    private int size;
+    private Map<String, List<FacetCountDTO>> facets = new LinkedHashMap<>();
+
+    public List<ProductDTO> getHits() {
+        return hits;
+    }
+
+    public void setHits(List<ProductDTO> hits) {
+        this.hits = hits;
+    }
+
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    public void setTotalHits(long totalHits) {
+        this.totalHits = totalHits;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public Map<String, List<FacetCountDTO>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, List<FacetCountDTO>> facets) {
+        this.facets = facets;
+    }
+}
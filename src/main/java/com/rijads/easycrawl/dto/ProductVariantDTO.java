@@ -1,6 +1,7 @@
 package com.rijads.easycrawl.dto;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 public class ProductVariantDTO {
     private Integer id;
@@ -18,6 +19,42 @@ public class ProductVariantDTO {
     private Boolean hasPriceHistory;
     private String lastUpdated;
 
+    public ProductVariantDTO() {}
+
+    /**
+     * Read model constructor, used by the listing queries in ProductVariantReadRepository
+     */
+    public ProductVariantDTO(
+            Integer id,
+            String websiteName,
+            String websiteCode,
+            String title,
+            BigDecimal price,
+            BigDecimal oldPrice,
+            BigDecimal discount,
+            String currency,
+            String color,
+            String size,
+            String sourceUrl,
+            String imageUrl,
+            Boolean hasPriceHistory,
+            LocalDateTime modified) {
+        this.id = id;
+        this.websiteName = websiteName;
+        this.websiteCode = websiteCode;
+        this.title = title;
+        this.price = price;
+        this.oldPrice = oldPrice;
+        this.discount = discount;
+        this.currency = currency;
+        this.color = color;
+        this.size = size;
+        this.sourceUrl = sourceUrl;
+        this.imageUrl = imageUrl;
+        this.hasPriceHistory = hasPriceHistory;
+        this.lastUpdated = modified != null ? modified.toString() : null;
+    }
+
     public Integer getId() {
         return id;
     }
@@ -0,0 +1,80 @@
+package com.rijads.easycrawl.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class StorePriceDTO {
+    private String websiteCode;
+    private String websiteName;
+    private BigDecimal price;
+    private String currency;
+    private Boolean inStock;
+    private String sourceUrl;
+    private LocalDateTime lastUpdated;
+    private Integer variantCount;
+
+    // Getters and setters
+    public String getWebsiteCode() {
+        return websiteCode;
+    }
+
+    public void setWebsiteCode(String websiteCode) {
+        this.websiteCode = websiteCode;
+    }
+
+    public String getWebsiteName() {
+        return websiteName;
+    }
+
+    public void setWebsiteName(String websiteName) {
+        this.websiteName = websiteName;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public Boolean getInStock() {
+        return inStock;
+    }
+
+    public void setInStock(Boolean inStock) {
+        this.inStock = inStock;
+    }
+
+    public String getSourceUrl() {
+        return sourceUrl;
+    }
+
+    public void setSourceUrl(String sourceUrl) {
+        this.sourceUrl = sourceUrl;
+    }
+
+    public LocalDateTime getLastUpdated() {
+        return lastUpdated;
+    }
+
+    public void setLastUpdated(LocalDateTime lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+
+    public Integer getVariantCount() {
+        return variantCount;
+    }
+
+    public void setVariantCount(Integer variantCount) {
+        this.variantCount = variantCount;
+    }
+}
@@ -0,0 +1,93 @@
+package com.rijads.easycrawl.init;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Installs database objects that Hibernate cannot manage (functions, triggers).
+ * Every statement is idempotent so this runs on each startup.
+ */
+@Service
+public class DatabaseInitService {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseInitService.class);
+
+    /** Channel the job trigger publishes to, see JobEventListener */
+    public static final String JOB_EVENTS_CHANNEL = "job_events";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DatabaseInitService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void initializeDatabaseObjects() {
+        logger.info("Installing job notification trigger");
+        installJobNotifyTrigger();
+        installJobIndexes();
+        installProductSearchIndexes();
+        installProductModifiedIndex();
+    }
+
+    /**
+     * Trigram indexes behind the substring product search, LIKE '%term%' can't use a btree.
+     * The extension is required: product search and matcher candidates rank by word_similarity.
+     */
+    private void installProductSearchIndexes() {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        } catch (Exception e) {
+            throw new IllegalStateException("The pg_trgm extension is missing and could not be created, "
+                    + "product search needs its word_similarity function. Install it as a superuser with "
+                    + "CREATE EXTENSION pg_trgm", e);
+        }
+        for (String column : new String[] {"name", "brand", "model"}) {
+            jdbcTemplate.execute(
+                    "CREATE INDEX IF NOT EXISTS idx_product_" + column + "_trgm ON public.product " +
+                    "USING gin (lower(" + column + ") gin_trgm_ops)");
+        }
+    }
+
+    /**
+     * Behind the search index catch-up, which polls for recently modified products
+     */
+    private void installProductModifiedIndex() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_product_modified ON public.product (modified)");
+    }
+
+    /**
+     * At most one pending mapping job per source crawl job, so chained requests coalesce
+     */
+    private void installJobIndexes() {
+        jdbcTemplate.execute(
+                "CREATE UNIQUE INDEX IF NOT EXISTS uk_job_pending_mapping_source ON public.job (source_job_id) " +
+                "WHERE job_type = 'PRODUCT_MAPPING' AND status = 'Created' AND source_job_id IS NOT NULL");
+    }
+
+    /**
+     * NOTIFY job_events with a small JSON payload whenever a job is inserted or changes status
+     */
+    private void installJobNotifyTrigger() {
+        jdbcTemplate.execute(
+                "CREATE OR REPLACE FUNCTION public.notify_job_event() RETURNS trigger AS $$ " +
+                "BEGIN " +
+                "    IF TG_OP = 'UPDATE' AND OLD.status IS NOT DISTINCT FROM NEW.status THEN " +
+                "        RETURN NEW; " +
+                "    END IF; " +
+                "    PERFORM pg_notify('" + JOB_EVENTS_CHANNEL + "', json_build_object(" +
+                "        'id', NEW.id, 'status', NEW.status, 'jobType', NEW.job_type, " +
+                "        'websiteCode', NEW.website_code)::text); " +
+                "    RETURN NEW; " +
+                "END; " +
+                "$$ LANGUAGE plpgsql");
+        jdbcTemplate.execute(
+                "CREATE OR REPLACE TRIGGER trg_job_notify AFTER INSERT OR UPDATE OF status ON public.job " +
+                "FOR EACH ROW EXECUTE FUNCTION public.notify_job_event()");
+    }
+}
@@ -0,0 +1,39 @@
+package com.rijads.easycrawl.init;
+
+import com.rijads.easycrawl.repository.PriceHistoryRepository;
+import com.rijads.easycrawl.repository.PriceRollupRepository;
+import com.rijads.easycrawl.service.PriceRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+@Service
+public class PriceRollupInitService {
+    private static final Logger logger = LoggerFactory.getLogger(PriceRollupInitService.class);
+
+    private final PriceRollupRepository rollupRepository;
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final PriceRollupService rollupService;
+
+    public PriceRollupInitService(
+            PriceRollupRepository rollupRepository,
+            PriceHistoryRepository priceHistoryRepository,
+            PriceRollupService rollupService) {
+        this.rollupRepository = rollupRepository;
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.rollupService = rollupService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeRollups() {
+        logger.info("Checking if price rollup backfill is needed");
+        if (rollupRepository.count() > 0 || priceHistoryRepository.count() == 0) {
+            logger.info("Price rollups already populated or no price history yet, skipping backfill");
+            return;
+        }
+
+        rollupService.rebuildAll();
+    }
+}
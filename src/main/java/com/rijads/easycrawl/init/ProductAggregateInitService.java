@@ -0,0 +1,31 @@
+package com.rijads.easycrawl.init;
+
+import com.rijads.easycrawl.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ProductAggregateInitService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductAggregateInitService.class);
+
+    private final ProductRepository productRepository;
+
+    public ProductAggregateInitService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeAggregates() {
+        logger.info("Checking if product price aggregates need a backfill");
+        if (!productRepository.existsByStoreCountIsNull()) {
+            logger.info("Product price aggregates are up to date, skipping backfill");
+            return;
+        }
+
+        int updated = productRepository.refreshMissingAggregates();
+        logger.info("Backfilled price aggregates for {} products", updated);
+    }
+}
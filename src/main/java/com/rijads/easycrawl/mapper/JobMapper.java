@@ -7,6 +7,9 @@ import com.rijads.easycrawl.model.JobError;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+
 /**
  * Mapper for Job and JobError entities
  */
@@ -14,11 +17,43 @@ import org.mapstruct.Mapping;
 public interface JobMapper {
     @Mapping(source = "crawlerWebsite.code", target = "crawlerWebsiteCode")
     @Mapping(source = "config.code", target = "crawlerConfigCode")
+    @Mapping(target = "leaseAgeSeconds", expression = "java(leaseAgeSeconds(entity))")
     JobDTO toDto(Job entity);
 
+    /**
+     * Seconds since the last heartbeat of a running job, null for jobs that are not running
+     */
+    default Long leaseAgeSeconds(Job entity) {
+        if (!"Running".equals(entity.getStatus())) {
+            return null;
+        }
+        LocalDateTime lastSeen = entity.getHeartbeatAt() != null ? entity.getHeartbeatAt() : entity.getStartedAt();
+        return lastSeen != null ? Duration.between(lastSeen, LocalDateTime.now()).toSeconds() : null;
+    }
+
     @Mapping(source = "crawlerWebsiteCode", target = "crawlerWebsite.code")
     @Mapping(source = "crawlerConfigCode", target = "config.code")
+    @Mapping(target = "workerId", ignore = true)
+    @Mapping(target = "heartbeatAt", ignore = true)
+    @Mapping(target = "attempts", ignore = true)
+    @Mapping(target = "sourceJobId", ignore = true)
+    @Mapping(target = "parentJobId", ignore = true)
+    @Mapping(target = "itemsMapped", ignore = true)
+    @Mapping(target = "itemsSkipped", ignore = true)
+    @Mapping(target = "productsMatched", ignore = true)
+    @Mapping(target = "pricesRecorded", ignore = true)
+    @Mapping(target = "controlRequest", ignore = true)
     Job toEntity(JobDTO dto);
+    @Mapping(target = "workerId", ignore = true)
+    @Mapping(target = "heartbeatAt", ignore = true)
+    @Mapping(target = "attempts", ignore = true)
+    @Mapping(target = "sourceJobId", ignore = true)
+    @Mapping(target = "parentJobId", ignore = true)
+    @Mapping(target = "itemsMapped", ignore = true)
+    @Mapping(target = "itemsSkipped", ignore = true)
+    @Mapping(target = "productsMatched", ignore = true)
+    @Mapping(target = "pricesRecorded", ignore = true)
+    @Mapping(target = "controlRequest", ignore = true)
     Job toEntityWithoutObjects(JobDTO dto);
 
     @Mapping(source = "job.id", target = "jobId")
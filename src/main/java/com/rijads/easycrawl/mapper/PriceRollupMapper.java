@@ -0,0 +1,22 @@
+package com.rijads.easycrawl.mapper;
+
+import com.rijads.easycrawl.dto.PriceRollupDTO;
+import com.rijads.easycrawl.model.PriceRollup;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+@Mapper(componentModel = "spring", imports = {BigDecimal.class, RoundingMode.class})
+public interface PriceRollupMapper {
+
+    @Mapping(
+            target = "avgPrice",
+            expression =
+                    "java(rollup.getSumPrice().divide(BigDecimal.valueOf(rollup.getSampleCount()), 2, RoundingMode.HALF_UP))")
+    PriceRollupDTO toDto(PriceRollup rollup);
+
+    List<PriceRollupDTO> toDtoList(List<PriceRollup> rollups);
+}
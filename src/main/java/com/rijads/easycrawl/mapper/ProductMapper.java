@@ -10,44 +10,20 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Set;
 
 @Mapper(componentModel = "spring")
 public interface ProductMapper {
-    @Mapping(target = "lowestPrice", ignore = true)
-    @Mapping(target = "highestPrice", ignore = true)
-    @Mapping(target = "storeCount", ignore = true)
-    @Mapping(target = "hasPriceHistory", ignore = true)
     @Mapping(target = "category", source = "category.name")
     ProductDTO toDto(Product product);
 
-    @AfterMapping
-    default void setAggregatedValues(Product product, @MappingTarget ProductDTO productDTO) {
-        if(product.getVariants() != null && !product.getVariants().isEmpty()) {
-            productDTO.setLowestPrice(product.getVariants().stream()
-                    .filter(v-> v.getPrice() != null)
-                    .map(ProductVariant::getPrice)
-                    .min(BigDecimal::compareTo)
-                    .orElse(null));
-            productDTO.setHighestPrice(product.getVariants().stream()
-                    .filter(v-> v.getPrice()!=null)
-                    .map(ProductVariant::getPrice)
-                    .max(BigDecimal::compareTo)
-                    .orElse(null));
-            productDTO.setStoreCount((int) product.getVariants().stream()
-                    .map(v->v.getWebsite().getCode())
-                    .distinct()
-                    .count());
-            
-            // Check if any variant has price history
-            productDTO.setHasPriceHistory(product.getVariants().stream()
-                    .anyMatch(v -> v.getPriceHistories() != null && !v.getPriceHistories().isEmpty()));
-        }
-    }
-
     @Mapping(target = "category.code", source = "category")
+    @Mapping(target = "lowestPrice", ignore = true)
+    @Mapping(target = "highestPrice", ignore = true)
+    @Mapping(target = "storeCount", ignore = true)
+    @Mapping(target = "hasPriceHistory", ignore = true)
+    @Mapping(target = "dataVersion", ignore = true)
     Product dtoToEntity(ProductDTO productDTO);
 
     //@Mapping(target = "variants", source = "variants")
@@ -9,7 +9,10 @@ import java.time.LocalDateTime;
 @Table(
         name = "crawler_raw",
         schema = "public",
-        indexes = {@Index(name = "idx_crawler_raw_processed", columnList = "processed")})
+        indexes = {
+            @Index(name = "idx_crawler_raw_processed", columnList = "processed"),
+            @Index(name = "idx_crawler_raw_created_id", columnList = "created, id")
+        })
 public class CrawlerRaw {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
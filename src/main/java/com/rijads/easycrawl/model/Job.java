@@ -6,6 +6,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -17,7 +18,15 @@ import java.time.LocalDateTime;
  * product mapping job, or product cleanup job.
  */
 @Entity
-@Table(name = "job", schema = "public")
+@Table(
+        name = "job",
+        schema = "public",
+        indexes = {
+            @Index(name = "idx_job_source_job_id", columnList = "source_job_id"),
+            @Index(name = "idx_job_parent_job_id", columnList = "parent_job_id"),
+            @Index(name = "idx_job_config_type_created", columnList = "config_code, job_type, created"),
+            @Index(name = "idx_job_type_status", columnList = "job_type, status")
+        })
 public class Job {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -67,6 +76,45 @@ public class Job {
     @Column(name = "description", columnDefinition = "TEXT")
     private String description;
 
+    @Column(name = "worker_id", length = 100)
+    private String workerId;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "attempts")
+    private Integer attempts;
+
+    @Column(name = "source_job_id")
+    private Integer sourceJobId;
+
+    @Column(name = "parent_job_id")
+    private Integer parentJobId;
+
+    @Column(name = "items_mapped")
+    private Integer itemsMapped;
+
+    @Column(name = "items_skipped")
+    private Integer itemsSkipped;
+
+    @Column(name = "products_matched")
+    private Integer productsMatched;
+
+    @Column(name = "prices_recorded")
+    private Integer pricesRecorded;
+
+    // Items the current run set out to map, the base of the persisted progress
+    @Column(name = "items_total")
+    private Integer itemsTotal;
+
+    // PAUSE or CANCEL asked of a running job, only ever written through JobRepository queries
+    @Column(name = "control_request", length = 20, insertable = false, updatable = false)
+    private String controlRequest;
+
+    // Higher values are claimed first, see JobService for the levels
+    @Column(name = "priority")
+    private Integer priority;
+
     public Integer getId() {
         return id;
     }
@@ -186,4 +234,100 @@ public class Job {
     public void setDescription(String description) {
         this.description = description;
     }
-}
\ No newline at end of file
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Integer getSourceJobId() {
+        return sourceJobId;
+    }
+
+    public void setSourceJobId(Integer sourceJobId) {
+        this.sourceJobId = sourceJobId;
+    }
+
+    public Integer getParentJobId() {
+        return parentJobId;
+    }
+
+    public void setParentJobId(Integer parentJobId) {
+        this.parentJobId = parentJobId;
+    }
+
+    public Integer getItemsMapped() {
+        return itemsMapped;
+    }
+
+    public void setItemsMapped(Integer itemsMapped) {
+        this.itemsMapped = itemsMapped;
+    }
+
+    public Integer getItemsSkipped() {
+        return itemsSkipped;
+    }
+
+    public void setItemsSkipped(Integer itemsSkipped) {
+        this.itemsSkipped = itemsSkipped;
+    }
+
+    public Integer getProductsMatched() {
+        return productsMatched;
+    }
+
+    public void setProductsMatched(Integer productsMatched) {
+        this.productsMatched = productsMatched;
+    }
+
+    public Integer getPricesRecorded() {
+        return pricesRecorded;
+    }
+
+    public void setPricesRecorded(Integer pricesRecorded) {
+        this.pricesRecorded = pricesRecorded;
+    }
+
+    public Integer getItemsTotal() {
+        return itemsTotal;
+    }
+
+    public void setItemsTotal(Integer itemsTotal) {
+        this.itemsTotal = itemsTotal;
+    }
+
+    public String getControlRequest() {
+        return controlRequest;
+    }
+
+    public void setControlRequest(String controlRequest) {
+        this.controlRequest = controlRequest;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+}
@@ -0,0 +1,157 @@
+package com.rijads.easycrawl.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated price statistics for a variant or a whole product over a day, week or month.
+ * Maintained incrementally whenever price history is recorded, so charts can read a few
+ * hundred rows instead of the raw history.
+ */
+@Entity
+@Table(
+        name = "price_rollup",
+        schema = "public",
+        uniqueConstraints =
+                @UniqueConstraint(
+                        name = "uk_price_rollup_bucket",
+                        columnNames = {"scope", "scope_id", "granularity", "bucket_start"}))
+public class PriceRollup {
+    public enum Scope {
+        VARIANT,
+        PRODUCT
+    }
+
+    public enum Granularity {
+        DAY,
+        WEEK,
+        MONTH
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "scope", nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private Scope scope;
+
+    @Column(name = "scope_id", nullable = false)
+    private Integer scopeId;
+
+    @Column(name = "granularity", nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private Granularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDate bucketStart;
+
+    @Column(name = "min_price", precision = 12, scale = 2, nullable = false)
+    private BigDecimal minPrice;
+
+    @Column(name = "max_price", precision = 12, scale = 2, nullable = false)
+    private BigDecimal maxPrice;
+
+    @Column(name = "sum_price", precision = 18, scale = 2, nullable = false)
+    private BigDecimal sumPrice;
+
+    @Column(name = "sample_count", nullable = false)
+    private Integer sampleCount;
+
+    @Column(name = "last_price", precision = 12, scale = 2, nullable = false)
+    private BigDecimal lastPrice;
+
+    @Column(name = "last_recorded_at", nullable = false)
+    private LocalDateTime lastRecordedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    public void setScope(Scope scope) {
+        this.scope = scope;
+    }
+
+    public Integer getScopeId() {
+        return scopeId;
+    }
+
+    public void setScopeId(Integer scopeId) {
+        this.scopeId = scopeId;
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(Granularity granularity) {
+        this.granularity = granularity;
+    }
+
+    public LocalDate getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDate bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public BigDecimal getSumPrice() {
+        return sumPrice;
+    }
+
+    public void setSumPrice(BigDecimal sumPrice) {
+        this.sumPrice = sumPrice;
+    }
+
+    public Integer getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(Integer sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public BigDecimal getLastPrice() {
+        return lastPrice;
+    }
+
+    public void setLastPrice(BigDecimal lastPrice) {
+        this.lastPrice = lastPrice;
+    }
+
+    public LocalDateTime getLastRecordedAt() {
+        return lastRecordedAt;
+    }
+
+    public void setLastRecordedAt(LocalDateTime lastRecordedAt) {
+        this.lastRecordedAt = lastRecordedAt;
+    }
+}
@@ -6,6 +6,7 @@ import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.Type;
 import org.hibernate.type.SqlTypes;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -16,7 +17,8 @@ import java.util.Set;
         schema = "public",
         indexes = {
             @Index(name = "idx_product_brand", columnList = "brand"),
-            @Index(name = "idx_product_category_code", columnList = "category_code")
+            @Index(name = "idx_product_category_code", columnList = "category_code"),
+            @Index(name = "idx_product_lowest_price", columnList = "lowest_price")
         })
 public class Product {
     @Id
@@ -60,6 +62,23 @@ public class Product {
 
     @Column private LocalDateTime modified;
 
+    // Price aggregates over all variants, maintained by ProductRepository.refreshAggregates
+    @Column(name = "lowest_price", precision = 12, scale = 2, insertable = false, updatable = false)
+    private BigDecimal lowestPrice;
+
+    @Column(name = "highest_price", precision = 12, scale = 2, insertable = false, updatable = false)
+    private BigDecimal highestPrice;
+
+    @Column(name = "store_count", insertable = false, updatable = false)
+    private Integer storeCount;
+
+    @Column(name = "has_price_history", insertable = false, updatable = false)
+    private Boolean hasPriceHistory;
+
+    // Bumped with the aggregates whenever a variant or its price history changes, the ETag of product responses
+    @Column(name = "data_version", insertable = false, updatable = false)
+    private Long dataVersion;
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<ProductVariant> variants = new HashSet<>();
 
@@ -178,6 +197,46 @@ public class Product {
         this.modified = modified;
     }
 
+    public BigDecimal getLowestPrice() {
+        return lowestPrice;
+    }
+
+    public void setLowestPrice(BigDecimal lowestPrice) {
+        this.lowestPrice = lowestPrice;
+    }
+
+    public BigDecimal getHighestPrice() {
+        return highestPrice;
+    }
+
+    public void setHighestPrice(BigDecimal highestPrice) {
+        this.highestPrice = highestPrice;
+    }
+
+    public Integer getStoreCount() {
+        return storeCount;
+    }
+
+    public void setStoreCount(Integer storeCount) {
+        this.storeCount = storeCount;
+    }
+
+    public Boolean getHasPriceHistory() {
+        return hasPriceHistory;
+    }
+
+    public void setHasPriceHistory(Boolean hasPriceHistory) {
+        this.hasPriceHistory = hasPriceHistory;
+    }
+
+    public Long getDataVersion() {
+        return dataVersion;
+    }
+
+    public void setDataVersion(Long dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+
     public Set<ProductVariant> getVariants() {
         return variants;
     }
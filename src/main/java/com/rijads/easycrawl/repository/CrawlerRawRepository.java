@@ -3,15 +3,19 @@ package com.rijads.easycrawl.repository;
 import com.rijads.easycrawl.model.CrawlerRaw;
 
 import com.rijads.easycrawl.model.Job;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface CrawlerRawRepository
@@ -19,6 +23,16 @@ public interface CrawlerRawRepository
                 PagingAndSortingRepository<CrawlerRaw, Integer>,
                 JpaSpecificationExecutor<CrawlerRaw> {
     List<CrawlerRaw> getByJob(Job job);
+
+    /**
+     * Raw items of a job read through a JDBC cursor, must be consumed in a transaction
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT cr FROM CrawlerRaw cr WHERE cr.job.id = :jobId ORDER BY cr.id")
+    Stream<CrawlerRaw> streamByJobId(@Param("jobId") Integer jobId);
+
     List<CrawlerRaw> findByProcessedNullOrProcessedFalse();
     List<CrawlerRaw> findByProcessedFalse();
     List<CrawlerRaw> findByProcessedFalseAndConfigCodeContaining(String categoryCode);
@@ -85,4 +99,22 @@ public interface CrawlerRawRepository
     @Query("SELECT cr FROM CrawlerRaw cr WHERE (cr.processed IS NULL OR cr.processed = false) " +
            "AND cr.configCode LIKE %:categoryCode%")
     List<CrawlerRaw> findByProcessedNullOrFalseAndConfigCodeContaining(@Param("categoryCode") String categoryCode);
+
+    /**
+     * Find unprocessed items produced by a specific crawl job
+     */
+    @Query("SELECT cr FROM CrawlerRaw cr WHERE cr.job.id = :jobId AND (cr.processed IS NULL OR cr.processed = false)")
+    List<CrawlerRaw> findUnprocessedByJobId(@Param("jobId") Integer jobId);
+
+    /**
+     * Find unprocessed items of exactly one crawler config
+     */
+    @Query("SELECT cr FROM CrawlerRaw cr WHERE cr.configCode = :configCode AND (cr.processed IS NULL OR cr.processed = false)")
+    List<CrawlerRaw> findUnprocessedByConfigCode(@Param("configCode") String configCode);
+
+    /**
+     * Count all unprocessed items
+     */
+    @Query("SELECT COUNT(cr) FROM CrawlerRaw cr WHERE cr.processed IS NULL OR cr.processed = false")
+    long countUnprocessed();
 }
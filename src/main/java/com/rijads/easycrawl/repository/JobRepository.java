@@ -5,11 +5,15 @@ import com.rijads.easycrawl.model.Job;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface JobRepository
@@ -27,18 +31,331 @@ public interface JobRepository
             @Param("configCode") String configCode, @Param("jobType") String jobType);
 
     /**
-     * Find the next available job to process
+     * Take the crawler scheduler lock for the current transaction, false when another instance
+     * holds it
      */
-    @Query(value = "SELECT * FROM job j " +
-            "WHERE j.status = 'Created' AND j.job_type = :jobType " +
-            "AND NOT EXISTS (" +
-            "    SELECT 1 FROM job running " +
-            "    WHERE running.website_code = j.website_code " +
-            "    AND running.status = 'Running' " +
-            "    AND running.job_type = :jobType" +
-            ") " +
-            "ORDER BY j.id ASC LIMIT 1", nativeQuery = true)
-    Job findNextAvailableJob(@Param("jobType") String jobType);
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('easycrawl-crawl-scheduler'))", nativeQuery = true)
+    boolean tryLockCrawlScheduler();
+
+    /**
+     * Create a CRAWL job for every auto-scheduled config whose last finished non-test crawl is
+     * at least auto_schedule_every hours old, or that never crawled. Configs that already have a
+     * queued, running or paused crawl are left alone.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO job (status, job_type, created, created_by, test_run, config_code, website_code, " +
+            "priority) " +
+            "SELECT 'Created', 'CRAWL', :now, 'Scheduler', false, c.code, c.website_code, :priority " +
+            "FROM crawler_config c " +
+            "LEFT JOIN LATERAL (SELECT j.created FROM job j " +
+            "    WHERE j.config_code = c.code AND j.job_type = 'CRAWL' AND j.status = 'Finished' " +
+            "    AND (j.test_run IS NULL OR j.test_run IS FALSE) " +
+            "    ORDER BY j.created DESC LIMIT 1) last_crawl ON true " +
+            "WHERE c.auto_schedule IS TRUE AND c.auto_schedule_every IS NOT NULL " +
+            "AND (last_crawl.created IS NULL " +
+            "    OR last_crawl.created + make_interval(hours => c.auto_schedule_every) <= :now) " +
+            "AND NOT EXISTS (SELECT 1 FROM job p WHERE p.config_code = c.code AND p.job_type = 'CRAWL' " +
+            "    AND p.status IN ('Created', 'Running', 'Paused'))", nativeQuery = true)
+    int insertDueCrawlerJobs(@Param("now") LocalDateTime now, @Param("priority") int priority);
+
+    /**
+     * Take the partition maintenance scheduler lock for the current transaction, false when
+     * another instance holds it
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('easycrawl-partition-scheduler'))", nativeQuery = true)
+    boolean tryLockPartitionScheduler();
+
+    /**
+     * Create a PARTITION_MAINTENANCE job unless one is already queued or running, or neither
+     * price_history nor crawler_raw is partitioned
+     */
+    @Modifying
+    @Query(value = "INSERT INTO job (status, job_type, created, created_by, test_run, priority) " +
+            "SELECT 'Created', 'PARTITION_MAINTENANCE', :now, 'Scheduler', false, :priority " +
+            "WHERE EXISTS (SELECT 1 FROM pg_partitioned_table pt " +
+            "    JOIN pg_class c ON c.oid = pt.partrelid " +
+            "    JOIN pg_namespace n ON n.oid = c.relnamespace " +
+            "    WHERE n.nspname = 'public' AND c.relname IN ('price_history', 'crawler_raw')) " +
+            "AND NOT EXISTS (SELECT 1 FROM job p WHERE p.job_type = 'PARTITION_MAINTENANCE' " +
+            "    AND p.status IN ('Created', 'Running'))", nativeQuery = true)
+    int insertPartitionMaintenanceJob(@Param("now") LocalDateTime now, @Param("priority") int priority);
+
+    /**
+     * Atomically claim the next available job of a type for a worker.
+     * The row lock with SKIP LOCKED lets several backend instances poll the queue at the same
+     * time without ever handing the same job to two of them. Jobs of a website that already has
+     * perWebsiteLimit jobs of this type running are skipped.
+     *
+     * <p>Higher priority jobs go first. Within a priority, websites take turns: each queued job is
+     * ranked by its position in its website's queue plus the jobs that website already has
+     * running, so one website with many configs cannot starve the others.
+     */
+    @Transactional
+    @Query(value = "UPDATE job SET status = 'Running', started_at = :now, modified = :now, worker_id = :workerId, " +
+            "heartbeat_at = :now, attempts = COALESCE(attempts, 0) + 1 " +
+            "WHERE id = (" +
+            "    SELECT j.id FROM job j " +
+            "    JOIN (" +
+            "        SELECT q.id, ROW_NUMBER() OVER (PARTITION BY q.website_code ORDER BY q.id) AS website_rank " +
+            "        FROM job q WHERE q.status = 'Created' AND q.job_type = :jobType" +
+            "    ) ranked ON ranked.id = j.id " +
+            "    LEFT JOIN (" +
+            "        SELECT r.website_code, COUNT(*) AS running FROM job r " +
+            "        WHERE r.status = 'Running' AND r.job_type = :jobType GROUP BY r.website_code" +
+            "    ) busy ON busy.website_code = j.website_code " +
+            "    WHERE j.status = 'Created' AND j.job_type = :jobType " +
+            "    AND COALESCE(busy.running, 0) < :perWebsiteLimit " +
+            "    ORDER BY COALESCE(j.priority, 0) DESC, ranked.website_rank + COALESCE(busy.running, 0) ASC, j.id ASC " +
+            "    LIMIT 1 " +
+            "    FOR UPDATE OF j SKIP LOCKED" +
+            ") RETURNING *", nativeQuery = true)
+    Job claimNextAvailableJob(
+            @Param("jobType") String jobType,
+            @Param("workerId") String workerId,
+            @Param("perWebsiteLimit") int perWebsiteLimit,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Copy the progress counters of a running job to its row
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE job SET items_total = :total, items_mapped = :mapped, items_skipped = :skipped, " +
+            "products_matched = :products, prices_recorded = :prices, modified = :now WHERE id = :id",
+            nativeQuery = true)
+    int updateProgress(@Param("id") Integer id, @Param("total") int total, @Param("mapped") int mapped,
+                       @Param("skipped") int skipped, @Param("products") int products, @Param("prices") int prices,
+                       @Param("now") LocalDateTime now);
+
+    /**
+     * Refresh the lease of running jobs
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE job SET heartbeat_at = :now WHERE id IN :ids AND status = 'Running'", nativeQuery = true)
+    int touchHeartbeats(@Param("ids") Collection<Integer> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * Refresh the lease of running internal jobs, as long as they are still leased to this worker
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE job SET heartbeat_at = :now " +
+            "WHERE id IN :ids AND status = 'Running' AND worker_id = :workerId", nativeQuery = true)
+    int touchLeasedHeartbeats(@Param("ids") Collection<Integer> ids, @Param("workerId") String workerId,
+                              @Param("now") LocalDateTime now);
+
+    /**
+     * Record the outcome of a run, only while the worker still holds the lease of that attempt.
+     * Null description, finishedAt or errorMessage keep the current value.
+     *
+     * @return 0 when the lease was lost, e.g. the reaper re-queued the job and another worker took it
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE job SET status = :status, modified = :now, " +
+            "finished_at = COALESCE(CAST(:finishedAt AS timestamp), finished_at), " +
+            "description = COALESCE(CAST(:description AS text), description), " +
+            "error_message = COALESCE(CAST(:errorMessage AS text), error_message) " +
+            "WHERE id = :id AND status = 'Running' AND worker_id = :workerId AND attempts = :attempts",
+            nativeQuery = true)
+    int completeLeasedRun(@Param("id") Integer id, @Param("workerId") String workerId,
+                          @Param("attempts") Integer attempts, @Param("status") String status,
+                          @Param("finishedAt") LocalDateTime finishedAt, @Param("description") String description,
+                          @Param("errorMessage") String errorMessage, @Param("now") LocalDateTime now);
+
+    /**
+     * Put a job whose lease expired back in the queue, unless its worker renewed the lease or
+     * finished the run since it was read
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE job SET status = 'Created', started_at = NULL, heartbeat_at = NULL, worker_id = NULL, " +
+            "modified = :now " +
+            "WHERE id = :id AND status = 'Running' AND worker_id IS NOT DISTINCT FROM CAST(:workerId AS varchar) " +
+            "AND attempts IS NOT DISTINCT FROM CAST(:attempts AS integer) " +
+            "AND COALESCE(heartbeat_at, started_at, created) < :cutoff", nativeQuery = true)
+    int requeueExpiredLease(@Param("id") Integer id, @Param("workerId") String workerId,
+                            @Param("attempts") Integer attempts, @Param("cutoff") LocalDateTime cutoff,
+                            @Param("now") LocalDateTime now);
+
+    /**
+     * Fail a job whose lease expired, with the same checks as {@link #requeueExpiredLease}
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE job SET status = 'Failed', finished_at = :now, error_message = :errorMessage, " +
+            "modified = :now " +
+            "WHERE id = :id AND status = 'Running' AND worker_id IS NOT DISTINCT FROM CAST(:workerId AS varchar) " +
+            "AND attempts IS NOT DISTINCT FROM CAST(:attempts AS integer) " +
+            "AND COALESCE(heartbeat_at, started_at, created) < :cutoff", nativeQuery = true)
+    int failExpiredLease(@Param("id") Integer id, @Param("workerId") String workerId,
+                         @Param("attempts") Integer attempts, @Param("errorMessage") String errorMessage,
+                         @Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+
+    /**
+     * Lock running jobs whose lease expired. Internal jobs fall back to started_at when they never
+     * sent a heartbeat; crawl jobs are only considered once the crawler has started heartbeating.
+     */
+    @Query(value = "SELECT * FROM job " +
+            "WHERE status = 'Running' " +
+            "AND ((job_type IN (:internalTypes) AND COALESCE(heartbeat_at, started_at, created) < :cutoff) " +
+            "    OR (job_type NOT IN (:internalTypes) AND heartbeat_at < :cutoff)) " +
+            "ORDER BY id FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Job> lockExpiredLeases(
+            @Param("internalTypes") Collection<String> internalTypes, @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Enqueue one PRODUCT_MAPPING job for every non-test CRAWL job that finished since the given
+     * time and has no mapping job yet. The NOT EXISTS check plus the partial unique index on
+     * pending mapping jobs coalesce duplicate requests, also across instances.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO job (status, job_type, created, created_by, test_run, source_job_id, " +
+            "config_code, website_code, priority) " +
+            "SELECT 'Created', 'PRODUCT_MAPPING', :now, 'JobChain', false, c.id, c.config_code, c.website_code, " +
+            ":priority " +
+            "FROM job c " +
+            "WHERE c.job_type = 'CRAWL' AND c.status = 'Finished' " +
+            "AND (c.test_run IS NULL OR c.test_run IS FALSE) " +
+            "AND COALESCE(c.finished_at, c.modified, c.created) >= :since " +
+            "AND NOT EXISTS (SELECT 1 FROM job m WHERE m.source_job_id = c.id AND m.job_type = 'PRODUCT_MAPPING') " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int enqueueMappingForFinishedCrawls(
+            @Param("since") LocalDateTime since, @Param("now") LocalDateTime now, @Param("priority") int priority);
+
+    /**
+     * Enqueue one child PRODUCT_MAPPING job per crawler config that still has unprocessed items.
+     * Children inherit the parent's priority.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO job (status, job_type, created, created_by, test_run, parent_job_id, " +
+            "config_code, website_code, priority) " +
+            "SELECT 'Created', 'PRODUCT_MAPPING', :now, 'JobShard', false, :parentJobId, c.code, c.website_code, " +
+            "(SELECT parent.priority FROM job parent WHERE parent.id = :parentJobId) " +
+            "FROM crawler_config c " +
+            "WHERE EXISTS (SELECT 1 FROM crawler_raw r WHERE r.config_code = c.code AND r.processed IS NOT TRUE)",
+            nativeQuery = true)
+    int insertMappingShards(@Param("parentJobId") Integer parentJobId, @Param("now") LocalDateTime now);
+
+    /**
+     * Move a sharded job from its run to the Waiting status. Conditional on the lease like
+     * {@link #completeLeasedRun}, and skipped when a pause or cancel was requested meanwhile so
+     * the run can act on it.
+     *
+     * @return 0 when the lease was lost or a control request is pending
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE job SET status = 'Waiting', description = :description, modified = :now " +
+            "WHERE id = :id AND status = 'Running' AND worker_id = :workerId AND attempts = :attempts " +
+            "AND control_request IS NULL", nativeQuery = true)
+    int markSharded(@Param("id") Integer id, @Param("workerId") String workerId,
+                    @Param("attempts") Integer attempts, @Param("description") String description,
+                    @Param("now") LocalDateTime now);
+
+    /**
+     * Write the counters rolled up from a sharded job's children, and its final status once they
+     * are all done. Only applies while the job is still waiting, a cancel in between wins.
+     * Null finishedAt or errorMessage keep the current value.
+     *
+     * @return 0 when the job is no longer waiting
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE job SET status = :status, items_total = :total, items_mapped = :mapped, " +
+            "items_skipped = :skipped, products_matched = :products, prices_recorded = :prices, " +
+            "description = :description, modified = :now, " +
+            "finished_at = COALESCE(CAST(:finishedAt AS timestamp), finished_at), " +
+            "error_message = COALESCE(CAST(:errorMessage AS text), error_message) " +
+            "WHERE id = :id AND status = 'Waiting'", nativeQuery = true)
+    int updateWaitingParent(@Param("id") Integer id, @Param("status") String status, @Param("total") int total,
+                            @Param("mapped") int mapped, @Param("skipped") int skipped,
+                            @Param("products") int products, @Param("prices") int prices,
+                            @Param("description") String description, @Param("finishedAt") LocalDateTime finishedAt,
+                            @Param("errorMessage") String errorMessage, @Param("now") LocalDateTime now);
+
+    /**
+     * Find the child jobs of a sharded job
+     */
+    List<Job> findByParentJobIdOrderByIdAsc(Integer parentJobId);
+
+    /**
+     * Find jobs of a type in a given status
+     */
+    List<Job> findByJobTypeAndStatus(String jobType, String status);
+
+    /**
+     * Whether a global (unscoped) mapping job is queued, running or waiting for its children
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM job WHERE job_type = 'PRODUCT_MAPPING' " +
+            "AND config_code IS NULL AND source_job_id IS NULL AND parent_job_id IS NULL " +
+            "AND status IN ('Created', 'Running', 'Waiting'))", nativeQuery = true)
+    boolean existsPendingGlobalMappingJob();
+
+    /**
+     * Move a job to a new status if it is currently in one of the given statuses. Clears any
+     * pending control request; cancelled jobs also get their finish time.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE job SET status = :status, control_request = NULL, modified = :now, " +
+            "finished_at = CASE WHEN :status = 'Cancelled' THEN :now ELSE finished_at END, " +
+            "attempts = CASE WHEN :status = 'Created' THEN 0 ELSE attempts END " +
+            "WHERE id = :id AND status IN (:fromStatuses)", nativeQuery = true)
+    int transitionStatus(@Param("id") Integer id, @Param("fromStatuses") Collection<String> fromStatuses,
+                         @Param("status") String status, @Param("now") LocalDateTime now);
+
+    /**
+     * Same as {@link #transitionStatus} for all child jobs of a sharded job
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE job SET status = :status, control_request = NULL, modified = :now, " +
+            "finished_at = CASE WHEN :status = 'Cancelled' THEN :now ELSE finished_at END, " +
+            "attempts = CASE WHEN :status = 'Created' THEN 0 ELSE attempts END " +
+            "WHERE parent_job_id = :parentJobId AND status IN (:fromStatuses)", nativeQuery = true)
+    int transitionChildStatus(@Param("parentJobId") Integer parentJobId,
+                              @Param("fromStatuses") Collection<String> fromStatuses,
+                              @Param("status") String status, @Param("now") LocalDateTime now);
+
+    /**
+     * Ask a running internal job, or the running children of a sharded job, to pause or cancel
+     *
+     * @return ids of the jobs that got the request
+     */
+    @Transactional
+    @Query(value = "UPDATE job SET control_request = :request WHERE status = 'Running' " +
+            "AND job_type IN (:internalTypes) AND (id = :id OR parent_job_id = :id) RETURNING id", nativeQuery = true)
+    List<Integer> requestControl(@Param("id") Integer id, @Param("request") String request,
+                       @Param("internalTypes") Collection<String> internalTypes);
+
+    /**
+     * Withdraw a pause request that a running job has not acted on yet
+     *
+     * @return ids of the jobs whose request was withdrawn
+     */
+    @Transactional
+    @Query(value = "UPDATE job SET control_request = NULL WHERE status = 'Running' " +
+            "AND control_request = 'PAUSE' AND (id = :id OR parent_job_id = :id) RETURNING id", nativeQuery = true)
+    List<Integer> withdrawPauseRequest(@Param("id") Integer id);
+
+    /**
+     * Clear the control request of a job once its worker has acted on it
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE job SET control_request = NULL WHERE id = :id AND control_request IS NOT NULL",
+            nativeQuery = true)
+    int clearControlRequest(@Param("id") Integer id);
+
+    /**
+     * Read the pending control request of a job
+     */
+    @Query(value = "SELECT control_request FROM job WHERE id = :id", nativeQuery = true)
+    String findControlRequest(@Param("id") Integer id);
 
     /**
      * Find jobs by type
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.jpa.repository.Modifying;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -90,4 +91,41 @@ public interface PriceHistoryRepository extends JpaRepository<PriceHistory, Inte
            "GROUP BY ph2.variant.id, FUNCTION('DATE', ph2.recordedAt)) " +
            "ORDER BY ph.recordedAt DESC")
     List<PriceHistory> findDailyByVariantIds(@Param("variantIds") List<Integer> variantIds);
-} 
\ No newline at end of file
+
+
+    /**
+     * A price history entry tagged with the title and website group of its variant
+     */
+    interface GroupedHistoryRow {
+        String getTitle();
+        String getGroupWebsiteCode();
+        Integer getId();
+        Integer getVariantId();
+        String getWebsiteCode();
+        String getWebsiteName();
+        BigDecimal getPrice();
+        BigDecimal getOldPrice();
+        BigDecimal getDiscount();
+        String getPriceString();
+        LocalDateTime getRecordedAt();
+    }
+
+    /**
+     * The latest maxPoints history entries of every title and website group of a product,
+     * newest first within a group
+     */
+    @Query(value = "SELECT h.title AS title, h.group_website_code AS groupWebsiteCode, h.id AS id, " +
+            "h.variant_id AS variantId, h.website_code AS websiteCode, w.name AS websiteName, " +
+            "h.price AS price, h.old_price AS oldPrice, h.discount AS discount, " +
+            "h.price_string AS priceString, h.recorded_at AS recordedAt " +
+            "FROM (SELECT pv.title, pv.website_code AS group_website_code, ph.*, " +
+            "    ROW_NUMBER() OVER (PARTITION BY pv.title, pv.website_code " +
+            "        ORDER BY ph.recorded_at DESC, ph.id DESC) AS rn " +
+            "    FROM price_history ph JOIN product_variant pv ON pv.id = ph.variant_id " +
+            "    WHERE pv.product_id = :productId) h " +
+            "LEFT JOIN crawler_website w ON w.code = h.website_code " +
+            "WHERE h.rn <= :maxPoints " +
+            "ORDER BY h.group_website_code, h.title, h.recorded_at DESC, h.id DESC", nativeQuery = true)
+    List<GroupedHistoryRow> findLatestGroupedHistoryByProductId(
+            @Param("productId") Integer productId, @Param("maxPoints") int maxPoints);
+}
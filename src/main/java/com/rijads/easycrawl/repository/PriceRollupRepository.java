@@ -0,0 +1,171 @@
+package com.rijads.easycrawl.repository;
+
+import com.rijads.easycrawl.model.PriceRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PriceRollupRepository extends JpaRepository<PriceRollup, Long> {
+
+    /**
+     * Find rollup buckets for a variant or product in a date range, oldest first
+     */
+    List<PriceRollup> findByScopeAndScopeIdAndGranularityAndBucketStartBetweenOrderByBucketStartAsc(
+            PriceRollup.Scope scope,
+            Integer scopeId,
+            PriceRollup.Granularity granularity,
+            LocalDate from,
+            LocalDate to);
+
+    /**
+     * Find rollup buckets of several variants or products from a date on, grouped by scope id
+     */
+    List<PriceRollup> findByScopeAndScopeIdInAndGranularityAndBucketStartGreaterThanEqualOrderByScopeIdAscBucketStartAsc(
+            PriceRollup.Scope scope,
+            Collection<Integer> scopeIds,
+            PriceRollup.Granularity granularity,
+            LocalDate from);
+
+    /**
+     * Fold a single price sample into the day, week and month buckets it belongs to.
+     * Runs as one statement so concurrent mapping jobs cannot lose updates.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO price_rollup (scope, scope_id, granularity, bucket_start, " +
+            "min_price, max_price, sum_price, sample_count, last_price, last_recorded_at) VALUES " +
+            "(:scope, :scopeId, 'DAY', :day, :price, :price, :price, 1, :price, :recordedAt), " +
+            "(:scope, :scopeId, 'WEEK', :week, :price, :price, :price, 1, :price, :recordedAt), " +
+            "(:scope, :scopeId, 'MONTH', :month, :price, :price, :price, 1, :price, :recordedAt) " +
+            "ON CONFLICT (scope, scope_id, granularity, bucket_start) DO UPDATE SET " +
+            "min_price = LEAST(price_rollup.min_price, EXCLUDED.min_price), " +
+            "max_price = GREATEST(price_rollup.max_price, EXCLUDED.max_price), " +
+            "sum_price = price_rollup.sum_price + EXCLUDED.sum_price, " +
+            "sample_count = price_rollup.sample_count + 1, " +
+            "last_price = CASE WHEN EXCLUDED.last_recorded_at >= price_rollup.last_recorded_at " +
+            "THEN EXCLUDED.last_price ELSE price_rollup.last_price END, " +
+            "last_recorded_at = GREATEST(price_rollup.last_recorded_at, EXCLUDED.last_recorded_at)",
+            nativeQuery = true)
+    void upsertSample(
+            @Param("scope") String scope,
+            @Param("scopeId") Integer scopeId,
+            @Param("day") LocalDate day,
+            @Param("week") LocalDate week,
+            @Param("month") LocalDate month,
+            @Param("price") BigDecimal price,
+            @Param("recordedAt") LocalDateTime recordedAt);
+
+    /**
+     * Recompute the day, week and month buckets of one variant from its raw price history.
+     * Used when a history entry is rewritten in place, folding it in again would count it twice
+     * and keep the overwritten price in min and max.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO price_rollup (scope, scope_id, granularity, bucket_start, " +
+            "min_price, max_price, sum_price, sample_count, last_price, last_recorded_at) " +
+            "SELECT 'VARIANT', :variantId, b.granularity, b.bucket_start, " +
+            "MIN(ph.price), MAX(ph.price), SUM(ph.price), COUNT(*), " +
+            "(array_agg(ph.price ORDER BY ph.recorded_at DESC))[1], MAX(ph.recorded_at) " +
+            "FROM (VALUES ('DAY', CAST(:day AS date), CAST(:day AS date) + 1), " +
+            "    ('WEEK', CAST(:week AS date), CAST(:week AS date) + 7), " +
+            "    ('MONTH', CAST(:month AS date), CAST(CAST(:month AS date) + INTERVAL '1 month' AS date))) " +
+            "    AS b(granularity, bucket_start, bucket_end) " +
+            "JOIN price_history ph ON ph.variant_id = :variantId " +
+            "    AND ph.recorded_at >= b.bucket_start AND ph.recorded_at < b.bucket_end " +
+            "GROUP BY b.granularity, b.bucket_start " +
+            "ON CONFLICT (scope, scope_id, granularity, bucket_start) DO UPDATE SET " +
+            "min_price = EXCLUDED.min_price, max_price = EXCLUDED.max_price, " +
+            "sum_price = EXCLUDED.sum_price, sample_count = EXCLUDED.sample_count, " +
+            "last_price = EXCLUDED.last_price, last_recorded_at = EXCLUDED.last_recorded_at",
+            nativeQuery = true)
+    void recomputeVariantBuckets(
+            @Param("variantId") Integer variantId,
+            @Param("day") LocalDate day,
+            @Param("week") LocalDate week,
+            @Param("month") LocalDate month);
+
+    /**
+     * Recompute the day, week and month buckets of one product from the raw price history of
+     * all its variants
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO price_rollup (scope, scope_id, granularity, bucket_start, " +
+            "min_price, max_price, sum_price, sample_count, last_price, last_recorded_at) " +
+            "SELECT 'PRODUCT', :productId, b.granularity, b.bucket_start, " +
+            "MIN(ph.price), MAX(ph.price), SUM(ph.price), COUNT(*), " +
+            "(array_agg(ph.price ORDER BY ph.recorded_at DESC))[1], MAX(ph.recorded_at) " +
+            "FROM (VALUES ('DAY', CAST(:day AS date), CAST(:day AS date) + 1), " +
+            "    ('WEEK', CAST(:week AS date), CAST(:week AS date) + 7), " +
+            "    ('MONTH', CAST(:month AS date), CAST(CAST(:month AS date) + INTERVAL '1 month' AS date))) " +
+            "    AS b(granularity, bucket_start, bucket_end) " +
+            "JOIN price_history ph ON ph.recorded_at >= b.bucket_start AND ph.recorded_at < b.bucket_end " +
+            "JOIN product_variant pv ON pv.id = ph.variant_id AND pv.product_id = :productId " +
+            "GROUP BY b.granularity, b.bucket_start " +
+            "ON CONFLICT (scope, scope_id, granularity, bucket_start) DO UPDATE SET " +
+            "min_price = EXCLUDED.min_price, max_price = EXCLUDED.max_price, " +
+            "sum_price = EXCLUDED.sum_price, sample_count = EXCLUDED.sample_count, " +
+            "last_price = EXCLUDED.last_price, last_recorded_at = EXCLUDED.last_recorded_at",
+            nativeQuery = true)
+    void recomputeProductBuckets(
+            @Param("productId") Integer productId,
+            @Param("day") LocalDate day,
+            @Param("week") LocalDate week,
+            @Param("month") LocalDate month);
+
+    /**
+     * Drop all buckets of the given variants or products, e.g. when they are deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PriceRollup r WHERE r.scope = :scope AND r.scopeId IN :scopeIds")
+    int deleteByScopeAndScopeIdIn(
+            @Param("scope") PriceRollup.Scope scope, @Param("scopeIds") Collection<Integer> scopeIds);
+
+    /**
+     * Rebuild variant buckets of one granularity from the raw price history.
+     * The unit is a date_trunc field name: day, week or month.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO price_rollup (scope, scope_id, granularity, bucket_start, " +
+            "min_price, max_price, sum_price, sample_count, last_price, last_recorded_at) " +
+            "SELECT 'VARIANT', ph.variant_id, :granularity, CAST(date_trunc(:unit, ph.recorded_at) AS date), " +
+            "MIN(ph.price), MAX(ph.price), SUM(ph.price), COUNT(*), " +
+            "(array_agg(ph.price ORDER BY ph.recorded_at DESC))[1], MAX(ph.recorded_at) " +
+            "FROM price_history ph " +
+            "GROUP BY ph.variant_id, CAST(date_trunc(:unit, ph.recorded_at) AS date)",
+            nativeQuery = true)
+    int rebuildVariantBuckets(@Param("granularity") String granularity, @Param("unit") String unit);
+
+    /**
+     * Rebuild product buckets of one granularity from the raw price history of all its variants
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO price_rollup (scope, scope_id, granularity, bucket_start, " +
+            "min_price, max_price, sum_price, sample_count, last_price, last_recorded_at) " +
+            "SELECT 'PRODUCT', pv.product_id, :granularity, CAST(date_trunc(:unit, ph.recorded_at) AS date), " +
+            "MIN(ph.price), MAX(ph.price), SUM(ph.price), COUNT(*), " +
+            "(array_agg(ph.price ORDER BY ph.recorded_at DESC))[1], MAX(ph.recorded_at) " +
+            "FROM price_history ph JOIN product_variant pv ON pv.id = ph.variant_id " +
+            "GROUP BY pv.product_id, CAST(date_trunc(:unit, ph.recorded_at) AS date)",
+            nativeQuery = true)
+    int rebuildProductBuckets(@Param("granularity") String granularity, @Param("unit") String unit);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM price_rollup", nativeQuery = true)
+    void deleteAllBuckets();
+}
@@ -0,0 +1,17 @@
+package com.rijads.easycrawl.repository;
+
+import com.rijads.easycrawl.dto.ProductDTO;
+import com.rijads.easycrawl.model.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Product listings read straight into DTOs, see ProductReadRepositoryImpl
+ */
+public interface ProductReadRepository {
+    /**
+     * Page of products matching spec as DTOs, one select plus a count when the page is not the last
+     */
+    Page<ProductDTO> findProductRows(Specification<Product> spec, Pageable pageable);
+}
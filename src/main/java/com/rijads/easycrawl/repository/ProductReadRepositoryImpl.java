@@ -0,0 +1,75 @@
+package com.rijads.easycrawl.repository;
+
+import com.rijads.easycrawl.dto.ProductDTO;
+import com.rijads.easycrawl.model.Product;
+import com.rijads.easycrawl.model.ProductCategory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+/**
+ * Builds ProductDTOs with a Criteria constructor expression. Mapping entities instead loads the
+ * lazy category of every row with its own statement.
+ */
+public class ProductReadRepositoryImpl implements ProductReadRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<ProductDTO> findProductRows(Specification<Product> spec, Pageable pageable) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductDTO> query = criteriaBuilder.createQuery(ProductDTO.class);
+        Root<Product> root = query.from(Product.class);
+        Join<Product, ProductCategory> category = root.join("category", JoinType.LEFT);
+        query.select(criteriaBuilder.construct(
+                ProductDTO.class,
+                root.get("id"),
+                root.get("name"),
+                root.get("brand"),
+                root.get("model"),
+                category.get("name"),
+                root.get("imageUrl"),
+                root.get("lowestPrice"),
+                root.get("highestPrice"),
+                root.get("storeCount"),
+                root.get("hasPriceHistory")));
+
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, criteriaBuilder) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+        }
+
+        TypedQuery<ProductDTO> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(spec));
+    }
+
+    private long count(Specification<Product> spec) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(criteriaBuilder.count(root));
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, criteriaBuilder) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
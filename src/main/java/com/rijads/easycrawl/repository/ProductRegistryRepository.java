@@ -1,17 +1,31 @@
 package com.rijads.easycrawl.repository;
 
 import com.rijads.easycrawl.model.ProductRegistry;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRegistryRepository extends CrudRepository<ProductRegistry, Integer>, PagingAndSortingRepository<ProductRegistry, Integer>, JpaSpecificationExecutor<ProductRegistry> {
 
+    /**
+     * All registry entries read through a JDBC cursor, must be consumed in a transaction
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r FROM ProductRegistry r ORDER BY r.id")
+    Stream<ProductRegistry> streamAll();
+
     /**
      * Find registry entries by type and enabled status
      */
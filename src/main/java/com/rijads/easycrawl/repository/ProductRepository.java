@@ -7,30 +7,41 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends CrudRepository<Product, Integer>,
         PagingAndSortingRepository<Product, Integer>,
-        JpaSpecificationExecutor<Product> {
+        JpaSpecificationExecutor<Product>,
+        ProductReadRepository {
     List<Product> findByCategory(ProductCategory category);
     List<Product> findByBrand(String brand);
 
     /**
-     * Search products by query term - matches on name, brand, or model
+     * Search products by query term - matches on name, brand, or model, best matches first.
+     * Each LIKE is served by a pg_trgm index (see DatabaseInitService), ranking uses word
+     * similarity of the term against the closest of the three fields.
      */
-    @Query("SELECT p FROM Product p WHERE " +
-            "(:query IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(p.brand) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(p.model) LIKE LOWER(CONCAT('%', :query, '%')))")
-    List<Product> searchProducts(@Param("query") String query);
+    @Query(value = "SELECT * FROM product p WHERE " +
+            "LOWER(p.name) LIKE CONCAT('%', LOWER(:query), '%') OR " +
+            "LOWER(p.brand) LIKE CONCAT('%', LOWER(:query), '%') OR " +
+            "LOWER(p.model) LIKE CONCAT('%', LOWER(:query), '%') " +
+            "ORDER BY GREATEST(word_similarity(LOWER(:query), LOWER(p.name)), " +
+            "word_similarity(LOWER(:query), LOWER(p.brand)), " +
+            "word_similarity(LOWER(:query), LOWER(p.model))) DESC, p.id DESC " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Product> searchProducts(@Param("query") String query, @Param("limit") int limit);
 
     /**
      * Find products by brand ordered by ID descending
@@ -69,4 +80,89 @@ public interface ProductRepository extends CrudRepository<Product, Integer>,
     List<String> findDistinctBrands();
 
     boolean existsByIdAndCreatedBefore(Integer id, LocalDateTime date);
-}
\ No newline at end of file
+
+    /**
+     * Recompute the denormalised price aggregates of a single product from its variants and
+     * bump its data version
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE product p SET " +
+            "lowest_price = agg.lowest, highest_price = agg.highest, store_count = agg.stores, " +
+            "data_version = COALESCE(p.data_version, 0) + 1, modified = now(), " +
+            "has_price_history = EXISTS (SELECT 1 FROM price_history ph " +
+            "    JOIN product_variant hv ON hv.id = ph.variant_id WHERE hv.product_id = :productId) " +
+            "FROM (SELECT MIN(pv.price) AS lowest, MAX(pv.price) AS highest, " +
+            "    COUNT(DISTINCT pv.website_code) AS stores " +
+            "    FROM product_variant pv WHERE pv.product_id = :productId) agg " +
+            "WHERE p.id = :productId", nativeQuery = true)
+    void refreshAggregates(@Param("productId") Integer productId);
+
+    /**
+     * Compute the price aggregates for every product that has never been refreshed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE product p SET " +
+            "lowest_price = agg.lowest, highest_price = agg.highest, store_count = agg.stores, " +
+            "has_price_history = EXISTS (SELECT 1 FROM price_history ph " +
+            "    JOIN product_variant hv ON hv.id = ph.variant_id WHERE hv.product_id = p.id) " +
+            "FROM (SELECT p2.id, MIN(pv.price) AS lowest, MAX(pv.price) AS highest, " +
+            "    COUNT(DISTINCT pv.website_code) AS stores " +
+            "    FROM product p2 LEFT JOIN product_variant pv ON pv.product_id = p2.id " +
+            "    WHERE p2.store_count IS NULL GROUP BY p2.id) agg " +
+            "WHERE p.id = agg.id", nativeQuery = true)
+    int refreshMissingAggregates();
+
+    boolean existsByStoreCountIsNull();
+
+    /**
+     * Products to put into the search index, with their category
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.id IN :ids")
+    List<Product> findForIndexByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Ids of the products modified at or after the given time, for the search index catch-up
+     */
+    @Query("SELECT p.id FROM Product p WHERE p.modified >= :since ORDER BY p.id")
+    List<Integer> findIdsModifiedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Next batch of products to put into the search index, in id order
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.id > :afterId ORDER BY p.id")
+    List<Product> findForIndexAfter(@Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * Version of the data derived from a product's variants and prices
+     */
+    interface DataVersion {
+        Integer getProductId();
+        Long getVersion();
+        LocalDateTime getModified();
+    }
+
+    @Query("SELECT p.id AS productId, COALESCE(p.dataVersion, 0) AS version, p.modified AS modified " +
+            "FROM Product p WHERE p.id = :productId")
+    Optional<DataVersion> findDataVersion(@Param("productId") Integer productId);
+
+    @Query("SELECT p.id AS productId, COALESCE(p.dataVersion, 0) AS version, p.modified AS modified " +
+            "FROM ProductVariant pv JOIN pv.product p WHERE pv.id = :variantId")
+    Optional<DataVersion> findDataVersionByVariantId(@Param("variantId") Integer variantId);
+
+    /**
+     * Combined version of the products with variants of this title and website: the version sum
+     * only grows while the variant count changes when a variant moves between products
+     */
+    interface GroupDataVersion {
+        Long getVariantCount();
+        Long getVersion();
+        LocalDateTime getModified();
+    }
+
+    @Query("SELECT COUNT(pv) AS variantCount, COALESCE(SUM(COALESCE(p.dataVersion, 0)), 0) AS version, " +
+            "MAX(p.modified) AS modified " +
+            "FROM ProductVariant pv JOIN pv.product p WHERE pv.title = :title AND pv.website.code = :websiteCode")
+    GroupDataVersion findGroupDataVersion(@Param("title") String title, @Param("websiteCode") String websiteCode);
+}
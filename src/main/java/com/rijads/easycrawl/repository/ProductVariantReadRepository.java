@@ -0,0 +1,17 @@
+package com.rijads.easycrawl.repository;
+
+import com.rijads.easycrawl.dto.ProductVariantDTO;
+import com.rijads.easycrawl.model.ProductVariant;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Variant listings read straight into DTOs, see ProductVariantReadRepositoryImpl
+ */
+public interface ProductVariantReadRepository {
+    /**
+     * Page of variants matching spec as DTOs, one select plus a count when the page is not the last
+     */
+    Page<ProductVariantDTO> findVariantRows(Specification<ProductVariant> spec, Pageable pageable);
+}
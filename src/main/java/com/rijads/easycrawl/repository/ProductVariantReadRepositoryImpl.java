@@ -0,0 +1,89 @@
+package com.rijads.easycrawl.repository;
+
+import com.rijads.easycrawl.dto.ProductVariantDTO;
+import com.rijads.easycrawl.model.CrawlerWebsite;
+import com.rijads.easycrawl.model.PriceHistory;
+import com.rijads.easycrawl.model.ProductVariant;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+/**
+ * Builds ProductVariantDTOs with a Criteria constructor expression. Mapping entities instead
+ * loads the website and the whole price history collection of every row to fill two columns.
+ */
+public class ProductVariantReadRepositoryImpl implements ProductVariantReadRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<ProductVariantDTO> findVariantRows(Specification<ProductVariant> spec, Pageable pageable) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductVariantDTO> query = criteriaBuilder.createQuery(ProductVariantDTO.class);
+        Root<ProductVariant> root = query.from(ProductVariant.class);
+        Join<ProductVariant, CrawlerWebsite> website = root.join("website", JoinType.LEFT);
+
+        Subquery<Integer> history = query.subquery(Integer.class);
+        Root<PriceHistory> historyRoot = history.from(PriceHistory.class);
+        history.select(criteriaBuilder.literal(1))
+                .where(criteriaBuilder.equal(historyRoot.get("variant"), root));
+
+        query.select(criteriaBuilder.construct(
+                ProductVariantDTO.class,
+                root.get("id"),
+                website.get("name"),
+                website.get("code"),
+                root.get("title"),
+                root.get("price"),
+                root.get("oldPrice"),
+                root.get("discount"),
+                root.get("currency"),
+                root.get("color"),
+                root.get("size"),
+                root.get("sourceUrl"),
+                root.get("imageUrl"),
+                criteriaBuilder.<Boolean>selectCase()
+                        .when(criteriaBuilder.exists(history), true)
+                        .otherwise(false),
+                root.get("modified")));
+
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, criteriaBuilder) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+        }
+
+        TypedQuery<ProductVariantDTO> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(spec));
+    }
+
+    private long count(Specification<ProductVariant> spec) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<ProductVariant> root = query.from(ProductVariant.class);
+        query.select(criteriaBuilder.count(root));
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, criteriaBuilder) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -11,12 +11,16 @@ import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductVariantRepository extends CrudRepository<ProductVariant,Integer>,
-        PagingAndSortingRepository<ProductVariant, Integer>, JpaSpecificationExecutor<ProductVariant> {
+        PagingAndSortingRepository<ProductVariant, Integer>, JpaSpecificationExecutor<ProductVariant>,
+        ProductVariantReadRepository {
     /**
      * Find variants by product ID
      */
@@ -63,6 +67,13 @@ public interface ProductVariantRepository extends CrudRepository<ProductVariant,
      */
     List<ProductVariant> findByTitleAndWebsiteCode(String title, String websiteCode);
 
+    /**
+     * Find ids of variants with the same title and website
+     */
+    @Query("SELECT pv.id FROM ProductVariant pv WHERE pv.title = :title AND pv.website.code = :websiteCode")
+    List<Integer> findIdsByTitleAndWebsiteCode(
+            @Param("title") String title, @Param("websiteCode") String websiteCode);
+
     /**
      * Get unique title and website combinations for a product
      */
@@ -80,4 +91,78 @@ public interface ProductVariantRepository extends CrudRepository<ProductVariant,
      */
     @Query("SELECT DISTINCT pv.title FROM ProductVariant pv WHERE pv.product.id = :productId")
     List<String> findDistinctTitlesByProductId(@Param("productId") Integer productId);
-}
\ No newline at end of file
+
+    /**
+     * Store and stock state of the variants of the given products, as [productId, websiteCode, inStock]
+     */
+    @Query("SELECT pv.product.id, pv.website.code, pv.inStock FROM ProductVariant pv WHERE pv.product.id IN :productIds")
+    List<Object[]> findStockByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+
+    /**
+     * One row per title and website of a product: the latest variant plus price range and count
+     */
+    interface VariantGroupRow {
+        String getTitle();
+        String getWebsiteCode();
+        String getWebsiteName();
+        String getColor();
+        String getSize();
+        BigDecimal getPrice();
+        String getSourceUrl();
+        String getImageUrl();
+        LocalDateTime getModified();
+        Integer getVariantCount();
+        BigDecimal getLowestPrice();
+        BigDecimal getHighestPrice();
+    }
+
+    /**
+     * Variants of a product grouped by title and website in one pass over product_variant
+     */
+    @Query(value = "SELECT g.title AS title, g.website_code AS websiteCode, w.name AS websiteName, " +
+            "g.color AS color, g.size AS size, g.price AS price, g.source_url AS sourceUrl, " +
+            "g.image_url AS imageUrl, g.modified AS modified, g.variant_count AS variantCount, " +
+            "g.lowest_price AS lowestPrice, g.highest_price AS highestPrice " +
+            "FROM (SELECT pv.*, " +
+            "    ROW_NUMBER() OVER (PARTITION BY pv.title, pv.website_code " +
+            "        ORDER BY pv.modified DESC NULLS LAST, pv.id DESC) AS rn, " +
+            "    CAST(COUNT(*) OVER grp AS integer) AS variant_count, " +
+            "    MIN(pv.price) OVER grp AS lowest_price, MAX(pv.price) OVER grp AS highest_price " +
+            "    FROM product_variant pv WHERE pv.product_id = :productId " +
+            "    WINDOW grp AS (PARTITION BY pv.title, pv.website_code)) g " +
+            "LEFT JOIN crawler_website w ON w.code = g.website_code " +
+            "WHERE g.rn = 1 " +
+            "ORDER BY g.website_code, g.title", nativeQuery = true)
+    List<VariantGroupRow> findVariantGroupsByProductId(@Param("productId") Integer productId);
+
+    /**
+     * Current offer of one store for a product
+     */
+    interface StorePriceRow {
+        Integer getProductId();
+        String getWebsiteCode();
+        String getWebsiteName();
+        BigDecimal getPrice();
+        String getCurrency();
+        Boolean getInStock();
+        String getSourceUrl();
+        LocalDateTime getModified();
+        Integer getVariantCount();
+    }
+
+    /**
+     * Cheapest offer per product and store for several products in one statement; variants in
+     * stock win over cheaper ones that are not
+     */
+    @Query(value = "SELECT DISTINCT ON (pv.product_id, pv.website_code) " +
+            "pv.product_id AS productId, pv.website_code AS websiteCode, w.name AS websiteName, " +
+            "pv.price AS price, pv.currency AS currency, pv.in_stock AS inStock, " +
+            "pv.source_url AS sourceUrl, pv.modified AS modified, " +
+            "CAST(COUNT(*) OVER (PARTITION BY pv.product_id, pv.website_code) AS integer) AS variantCount " +
+            "FROM product_variant pv " +
+            "LEFT JOIN crawler_website w ON w.code = pv.website_code " +
+            "WHERE pv.product_id IN (:productIds) " +
+            "ORDER BY pv.product_id, pv.website_code, COALESCE(pv.in_stock, true) DESC, pv.price, pv.id",
+            nativeQuery = true)
+    List<StorePriceRow> findStorePricesByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+}
@@ -1,5 +1,6 @@
 package com.rijads.easycrawl.service;
 
+import com.rijads.easycrawl.config.CacheConfiguration;
 import com.rijads.easycrawl.dto.CrawlerConfigDTO;
 import com.rijads.easycrawl.dto.CrawlerWebsiteDTO;
 import com.rijads.easycrawl.dto.DropdownDTO;
@@ -14,6 +15,8 @@ import com.rijads.easycrawl.repository.CrawlerWebsiteRepository;
 import com.rijads.easycrawl.repository.ProductCategoryRepository;
 import com.rijads.easycrawl.specification.CrawlerConfigSpecification;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -56,6 +59,7 @@ public class CrawlerConfigService {
         return resEntities.map(mapper::toDto);
     }
 
+    @CacheEvict(cacheNames = CacheConfiguration.CONFIG_DROPDOWN, allEntries = true)
     public ResponseEntity<CrawlerConfigDTO> addCrawlerConfig(final CrawlerConfigDTO request) {
         CrawlerConfig entity = mapper.toEntity(request);
         String code = request.getCrawlerWebsite() + '/' + request.getProductCategory();
@@ -69,6 +73,7 @@ public class CrawlerConfigService {
         return ResponseEntity.ok(mapper.toDto(entity));
     }
 
+    @CacheEvict(cacheNames = CacheConfiguration.CONFIG_DROPDOWN, allEntries = true)
     public ResponseEntity<CrawlerConfigDTO> editCrawlerConfig(
             final String code, final CrawlerConfigDTO request) {
         CrawlerConfig entity = repository.findById(code).orElse(null);
@@ -82,6 +87,7 @@ public class CrawlerConfigService {
         return ResponseEntity.notFound().build();
     }
 
+    @CacheEvict(cacheNames = CacheConfiguration.CONFIG_DROPDOWN, allEntries = true)
     public ResponseEntity<Void> deleteCrawlerConfig(final String code) {
         if (repository.existsById(code)) {
             repository.deleteById(code);
@@ -91,6 +97,7 @@ public class CrawlerConfigService {
         }
     }
 
+    @CacheEvict(cacheNames = CacheConfiguration.CONFIG_DROPDOWN, allEntries = true)
     public ResponseEntity<Void> deleteCrawlerConfigs(final List<String> codes) {
         if (codes == null || codes.isEmpty()) {
             return ResponseEntity.badRequest().build();
@@ -117,6 +124,7 @@ public class CrawlerConfigService {
         }
     }
 
+    @Cacheable(CacheConfiguration.CONFIG_DROPDOWN)
     public List<DropdownDTO> getAllCrawlerConfigsDropdown(String websiteCode) {
         List<CrawlerConfig> entities =
                 (List<CrawlerConfig>) repository.findAllByCrawlerWebsite_Code(websiteCode);
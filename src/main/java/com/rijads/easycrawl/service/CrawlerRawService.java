@@ -1,29 +1,41 @@
 package com.rijads.easycrawl.service;
 
 import com.rijads.easycrawl.dto.CrawlerRawDTO;
+import com.rijads.easycrawl.dto.CursorPageDTO;
 import com.rijads.easycrawl.mapper.CrawlerRawMapper;
 import com.rijads.easycrawl.model.CrawlerRaw;
 import com.rijads.easycrawl.model.Job;
 import com.rijads.easycrawl.repository.CrawlerRawRepository;
 import com.rijads.easycrawl.specification.CrawlerRawSpecification;
+import com.rijads.easycrawl.specification.KeysetPagination;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class CrawlerRawService {
+    private static final Set<String> CURSOR_SORTS = Set.of("created");
+
     private final CrawlerRawRepository repository;
     private final CrawlerRawMapper mapper;
+    private final EntityStreamWriter streamWriter;
 
-    public CrawlerRawService(CrawlerRawRepository repository, CrawlerRawMapper mapper) {
+    public CrawlerRawService(
+            CrawlerRawRepository repository, CrawlerRawMapper mapper, EntityStreamWriter streamWriter) {
         this.repository = repository;
         this.mapper = mapper;
+        this.streamWriter = streamWriter;
     }
 
     public Page<CrawlerRawDTO> getAllCrawlerRaws(
@@ -37,15 +49,49 @@ public class CrawlerRawService {
             Double jobId,
             Pageable pageable) {
         Specification<CrawlerRaw> spec =
-                Specification.where(CrawlerRawSpecification.hasConfigCode(configCode))
-                        .and(CrawlerRawSpecification.hasWebsite(website))
-                        .and(CrawlerRawSpecification.titleContains(title))
-                        .and(CrawlerRawSpecification.priceBetween(minPrice, maxPrice))
-                        .and(CrawlerRawSpecification.createdBetween(createdFrom, createdTo))
-                        .and(CrawlerRawSpecification.jobId(jobId));
+                filter(configCode, website, title, minPrice, maxPrice, createdFrom, createdTo, jobId);
         return repository.findAll(spec, pageable).map(mapper::toDto);
     }
 
+    /**
+     * Same filters as {@link #getAllCrawlerRaws}, paged with a cursor instead of an offset
+     */
+    public CursorPageDTO<CrawlerRawDTO> getCrawlerRawSlice(
+            String configCode,
+            String website,
+            String title,
+            Double minPrice,
+            Double maxPrice,
+            LocalDateTime createdFrom,
+            LocalDateTime createdTo,
+            Double jobId,
+            String cursor,
+            String sort,
+            Sort.Direction direction,
+            Integer size) {
+        Specification<CrawlerRaw> spec =
+                filter(configCode, website, title, minPrice, maxPrice, createdFrom, createdTo, jobId);
+        return KeysetPagination.fetch(
+                repository, spec, cursor, sort, direction, size, CURSOR_SORTS, mapper::toDto);
+    }
+
+    private static Specification<CrawlerRaw> filter(
+            String configCode,
+            String website,
+            String title,
+            Double minPrice,
+            Double maxPrice,
+            LocalDateTime createdFrom,
+            LocalDateTime createdTo,
+            Double jobId) {
+        return Specification.where(CrawlerRawSpecification.hasConfigCode(configCode))
+                .and(CrawlerRawSpecification.hasWebsite(website))
+                .and(CrawlerRawSpecification.titleContains(title))
+                .and(CrawlerRawSpecification.priceBetween(minPrice, maxPrice))
+                .and(CrawlerRawSpecification.createdBetween(createdFrom, createdTo))
+                .and(CrawlerRawSpecification.jobId(jobId));
+    }
+
     public Optional<CrawlerRawDTO> getCrawlerRawById(Integer id) {
         return repository.findById(id).map(mapper::toDto);
     }
@@ -64,4 +110,13 @@ public class CrawlerRawService {
         job.setId(id);
         return repository.getByJob(job).stream().map(mapper::toDto).toList();
     }
+
+    /**
+     * Write the raw items of a job as NDJSON while they are read, memory use does not grow with
+     * the size of the job
+     */
+    @Transactional(readOnly = true)
+    public long streamCrawlerRawsByJobId(Integer id, OutputStream out) throws IOException {
+        return streamWriter.write(repository.streamByJobId(id), mapper::toDto, out);
+    }
 }
@@ -0,0 +1,53 @@
+package com.rijads.easycrawl.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes a stream of entities as newline delimited JSON, one object per line.
+ *
+ * <p>Must run inside the read-only transaction that opened the stream. Every entity is detached
+ * once written, so the persistence context, like the JDBC cursor, only ever holds the rows of
+ * the current fetch.
+ */
+@Component
+public class EntityStreamWriter {
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public EntityStreamWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return number of lines written
+     */
+    public <T> long write(Stream<T> entities, Function<T, ?> mapper, OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<T> rows = entities;
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // The servlet response is closed by the container, not by us
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                T entity = iterator.next();
+                objectMapper.writeValue(generator, mapper.apply(entity));
+                generator.writeRaw('\n');
+                entityManager.detach(entity);
+                count++;
+            }
+        }
+        return count;
+    }
+}
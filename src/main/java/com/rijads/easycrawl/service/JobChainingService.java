@@ -0,0 +1,52 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.repository.JobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Chains jobs: a finished CRAWL job enqueues a PRODUCT_MAPPING job scoped to exactly the
+ * crawler_raw rows it produced, so fresh prices show up minutes after a crawl.
+ */
+@Service
+public class JobChainingService {
+    private static final Logger logger = LoggerFactory.getLogger(JobChainingService.class);
+
+    // How far back the fallback scan looks for finished crawls that were not chained yet
+    private static final long LOOKBACK_HOURS = 24;
+
+    private final JobRepository jobRepository;
+
+    public JobChainingService(JobRepository jobRepository) {
+        this.jobRepository = jobRepository;
+    }
+
+    @EventListener
+    public void onJobEvent(JobEvent event) {
+        if ("CRAWL".equals(event.jobType()) && "Finished".equals(event.status())) {
+            enqueueMappingJobs();
+        }
+    }
+
+    /**
+     * Fallback for notifications missed while no instance was listening
+     */
+    @Scheduled(fixedRateString = "${jobs.chaining-scan-interval-ms:300000}")
+    public void scanFinishedCrawls() {
+        enqueueMappingJobs();
+    }
+
+    private void enqueueMappingJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        int created = jobRepository.enqueueMappingForFinishedCrawls(
+                now.minusHours(LOOKBACK_HOURS), now, JobService.PRIORITY_FOLLOW_UP);
+        if (created > 0) {
+            logger.info("Enqueued {} product mapping jobs for finished crawls", created);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.repository.JobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cancel, pause and resume of jobs.
+ *
+ * <p>Queued and paused jobs change status directly. Running jobs only get a request in
+ * job.control_request, for a sharded job on each of its running children. Jobs among them that
+ * run on this instance also get an in-memory flag. Workers check the flag between title groups
+ * and the database between committed chunks, then stop with a {@link JobStoppedException}.
+ * Since every chunk commits the items it marked as processed, a resumed job continues where the
+ * paused run stopped.
+ */
+@Service
+public class JobControlService {
+    private static final Logger logger = LoggerFactory.getLogger(JobControlService.class);
+
+    public static final String PAUSED = "Paused";
+    public static final String CANCELLED = "Cancelled";
+
+    public static final String PAUSE = "PAUSE";
+    public static final String CANCEL = "CANCEL";
+
+    private final JobRepository jobRepository;
+    // Lazy, the processor itself depends on this service
+    private final JobProcessorService jobProcessorService;
+    // Only ever holds jobs running on this instance, release() removes them when they end
+    private final Map<Integer, String> localRequests = new ConcurrentHashMap<>();
+
+    public JobControlService(JobRepository jobRepository, @Lazy JobProcessorService jobProcessorService) {
+        this.jobRepository = jobRepository;
+        this.jobProcessorService = jobProcessorService;
+    }
+
+    /**
+     * Cancel a job, its queued or paused child jobs are cancelled with it
+     *
+     * @return false when the job is already finished, failed or cancelled
+     */
+    public boolean cancel(Integer id) {
+        LocalDateTime now = LocalDateTime.now();
+        jobRepository.transitionChildStatus(id, List.of("Created", PAUSED), CANCELLED, now);
+        boolean changed = jobRepository.transitionStatus(
+                id, List.of("Created", PAUSED, JobShardingService.WAITING), CANCELLED, now) > 0;
+        return request(id, CANCEL) || changed;
+    }
+
+    /**
+     * Pause a job. A waiting sharded job stays waiting while its children are paused.
+     *
+     * @return false when there is nothing left to pause
+     */
+    public boolean pause(Integer id) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean changed = jobRepository.transitionChildStatus(id, List.of("Created"), PAUSED, now) > 0;
+        changed |= jobRepository.transitionStatus(id, List.of("Created"), PAUSED, now) > 0;
+        return request(id, PAUSE) || changed;
+    }
+
+    /**
+     * Queue a paused job again, or withdraw a pause that a running job has not acted on yet
+     *
+     * @return false when the job is neither paused nor about to pause
+     */
+    public boolean resume(Integer id) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean changed = jobRepository.transitionChildStatus(id, List.of(PAUSED), "Created", now) > 0;
+        changed |= jobRepository.transitionStatus(id, List.of(PAUSED), "Created", now) > 0;
+        List<Integer> withdrawn = jobRepository.withdrawPauseRequest(id);
+        for (Integer jobId : withdrawn) {
+            localRequests.remove(jobId, PAUSE);
+        }
+        return changed || !withdrawn.isEmpty();
+    }
+
+    private boolean request(Integer id, String request) {
+        // The job itself when it runs, the running children when it is a sharded parent
+        List<Integer> requested = jobRepository.requestControl(id, request, JobProcessorService.INTERNAL_JOB_TYPES);
+        if (requested.isEmpty()) {
+            return false;
+        }
+        Set<Integer> runningHere = jobProcessorService.getRunningJobIds();
+        for (Integer jobId : requested) {
+            if (runningHere.contains(jobId)) {
+                localRequests.put(jobId, request);
+                if (!jobProcessorService.getRunningJobIds().contains(jobId)) {
+                    // Ended meanwhile, its release may already have run
+                    localRequests.remove(jobId);
+                }
+            }
+        }
+        logger.info("Requested {} of running jobs {}", request, requested);
+        return true;
+    }
+
+    /**
+     * Status a running job should stop with, or null to keep going. Without queryDatabase this
+     * is a map lookup, cheap enough for every iteration of a worker loop.
+     */
+    public String stopStatus(Integer jobId, boolean queryDatabase) {
+        String request = localRequests.get(jobId);
+        if (request == null && queryDatabase) {
+            request = jobRepository.findControlRequest(jobId);
+        }
+        if (request == null) {
+            return null;
+        }
+        return CANCEL.equals(request) ? CANCELLED : PAUSED;
+    }
+
+    /**
+     * Forget the request of a job whose worker has stopped
+     */
+    public void release(Integer jobId) {
+        localRequests.remove(jobId);
+        jobRepository.clearControlRequest(jobId);
+    }
+}
@@ -0,0 +1,6 @@
+package com.rijads.easycrawl.service;
+
+/**
+ * A job was created or changed status, published from the job_events database notification
+ */
+public record JobEvent(Integer id, String status, String jobType, String websiteCode) {}
@@ -0,0 +1,110 @@
+package com.rijads.easycrawl.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rijads.easycrawl.init.DatabaseInitService;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Listens on the job_events channel and republishes every notification as a {@link JobEvent},
+ * so the worker pool starts new jobs immediately instead of waiting for the next poll.
+ *
+ * <p>Holds one dedicated connection from the pool and reconnects with a back-off when it drops.
+ */
+@Component
+public class JobEventListener {
+    private static final Logger logger = LoggerFactory.getLogger(JobEventListener.class);
+
+    private static final int POLL_TIMEOUT_MS = 10_000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+
+    private final DataSource dataSource;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    private volatile boolean running = false;
+    private Thread listenerThread;
+
+    public JobEventListener(
+            DataSource dataSource, ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper) {
+        this.dataSource = dataSource;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        listenerThread = Thread.ofPlatform().name("job-event-listener").daemon().start(this::listenLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    private void listenLoop() {
+        long backoff = 1_000;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + DatabaseInitService.JOB_EVENTS_CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                logger.info("Listening for job notifications on {}", DatabaseInitService.JOB_EVENTS_CHANNEL);
+                backoff = 1_000;
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        publish(notification.getParameter());
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Job notification listener failed, reconnecting in {} ms: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void publish(String payload) {
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            JobEvent event = new JobEvent(
+                    node.path("id").isNull() ? null : node.path("id").asInt(),
+                    node.path("status").asText(null),
+                    node.path("jobType").asText(null),
+                    node.path("websiteCode").asText(null));
+            eventPublisher.publishEvent(event);
+        } catch (Exception e) {
+            logger.warn("Could not handle job notification {}: {}", payload, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.config.JobWorkerProperties;
+import com.rijads.easycrawl.model.Job;
+import com.rijads.easycrawl.repository.JobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps leases of running jobs alive and recovers jobs whose worker disappeared.
+ *
+ * <p>Jobs running on this instance get their heartbeat_at refreshed periodically. Running jobs
+ * whose lease expired (the JVM died, the crawler hung) are re-queued while they have attempts
+ * left and failed otherwise, so they stop counting against the per-website limit.
+ *
+ * <p>Both run on their own threads rather than the shared {@code @Scheduled} pool: a heartbeat
+ * stuck behind an index commit or a scheduler scan would let another instance reap a job that is
+ * still running here.
+ */
+@Service
+public class JobLeaseService {
+    private static final Logger logger = LoggerFactory.getLogger(JobLeaseService.class);
+
+    private final JobRepository jobRepository;
+    private final JobProcessorService jobProcessorService;
+    private final JobWorkerProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final long heartbeatIntervalMs;
+    private final long reaperIntervalMs;
+    private final ScheduledExecutorService leaseScheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "job-lease");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public JobLeaseService(
+            JobRepository jobRepository,
+            JobProcessorService jobProcessorService,
+            JobWorkerProperties properties,
+            PlatformTransactionManager transactionManager,
+            @Value("${jobs.heartbeat-interval-ms:30000}") long heartbeatIntervalMs,
+            @Value("${jobs.reaper-interval-ms:60000}") long reaperIntervalMs) {
+        this.jobRepository = jobRepository;
+        this.jobProcessorService = jobProcessorService;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.reaperIntervalMs = reaperIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        leaseScheduler.scheduleAtFixedRate(
+                () -> runSafely("heartbeat", this::heartbeat), 0, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+        leaseScheduler.scheduleAtFixedRate(
+                () -> runSafely("lease reaper", () -> transactionTemplate.executeWithoutResult(
+                        status -> reapExpiredLeases())),
+                reaperIntervalMs, reaperIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static void runSafely(String task, Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            // An exception would cancel the periodic task for good
+            logger.error("Error in job {}: {}", task, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Refresh the lease of every job executing on this instance
+     */
+    public void heartbeat() {
+        Set<Integer> running = jobProcessorService.getRunningJobIds();
+        if (!running.isEmpty()) {
+            jobRepository.touchLeasedHeartbeats(running, jobProcessorService.getWorkerId(), LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Re-queue or fail running jobs whose lease expired. Every change is a conditional update on
+     * the worker and attempt that were read, so a worker renewing or finishing its run meanwhile
+     * keeps its result. Runs inside the caller's transaction, which holds the row locks.
+     *
+     * <p>Expired internal jobs are re-queued while they have attempts left. Crawl jobs, which the
+     * external crawler runs, are failed: nothing here can resume them.
+     */
+    void reapExpiredLeases() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(properties.leaseTimeout());
+        List<String> internalTypes = JobProcessorService.INTERNAL_JOB_TYPES;
+        // Internal jobs of any age past the cutoff, crawl jobs only once they sent a heartbeat
+        List<Job> expired = jobRepository.lockExpiredLeases(internalTypes, cutoff);
+        Set<Integer> runningHere = jobProcessorService.getRunningJobIds();
+        String workerId = jobProcessorService.getWorkerId();
+
+        for (Job job : expired) {
+            if (runningHere.contains(job.getId()) && workerId.equals(job.getWorkerId())) {
+                // Still alive on this instance, the heartbeat was just late
+                jobRepository.touchLeasedHeartbeats(Set.of(job.getId()), workerId, now);
+                continue;
+            }
+
+            LocalDateTime lastSeen = job.getHeartbeatAt() != null ? job.getHeartbeatAt() : job.getStartedAt();
+            boolean internal = internalTypes.contains(job.getJobType());
+            int attempts = job.getAttempts() != null ? job.getAttempts() : 0;
+
+            if (internal && attempts < properties.maxAttempts()) {
+                // Mapping picks up where it left off, items already marked processed are skipped
+                if (jobRepository.requeueExpiredLease(
+                        job.getId(), job.getWorkerId(), job.getAttempts(), cutoff, now) > 0) {
+                    logger.warn("Re-queued {} job {} after lost lease of worker {} (attempt {}/{})",
+                            job.getJobType(), job.getId(), job.getWorkerId(), attempts, properties.maxAttempts());
+                }
+            } else {
+                String errorMessage = "Lease expired, no heartbeat from worker "
+                        + (job.getWorkerId() != null ? job.getWorkerId() : "unknown") + " since " + lastSeen;
+                if (jobRepository.failExpiredLease(
+                        job.getId(), job.getWorkerId(), job.getAttempts(), errorMessage, cutoff, now) > 0) {
+                    logger.warn("Failed {} job {}, no heartbeat since {}", job.getJobType(), job.getId(), lastSeen);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        leaseScheduler.shutdownNow();
+    }
+}
@@ -1,92 +1,252 @@
 package com.rijads.easycrawl.service;
 
+import com.rijads.easycrawl.config.JobWorkerProperties;
 import com.rijads.easycrawl.model.Job;
 import com.rijads.easycrawl.model.JobError;
 import com.rijads.easycrawl.repository.JobErrorRepository;
 import com.rijads.easycrawl.repository.JobRepository;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class JobProcessorService {
     private static final Logger logger = LoggerFactory.getLogger(JobProcessorService.class);
 
+    /** Job types executed inside this application, CRAWL jobs are run by the external crawler */
+    public static final List<String> INTERNAL_JOB_TYPES =
+            List.of("PRODUCT_MAPPING", "PRODUCT_CLEANUP", "PARTITION_MAINTENANCE");
+
     private final JobRepository jobRepository;
     private final JobErrorRepository jobErrorRepository;
     private final ProductMatchingService productMatchingService;
+    private final PartitionMaintenanceService partitionMaintenanceService;
+    private final PriceSeriesCache priceSeriesCache;
+    private final JobShardingService jobShardingService;
+    private final JobControlService jobControlService;
+    private final JobWorkerProperties properties;
+    private final String workerId;
+
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Semaphore> slots = new HashMap<>();
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+    private final AtomicBoolean dispatchRequested = new AtomicBoolean(false);
+    private final Set<Integer> runningJobIds = ConcurrentHashMap.newKeySet();
     
     public JobProcessorService(
             JobRepository jobRepository,
             JobErrorRepository jobErrorRepository,
-            ProductMatchingService productMatchingService) {
+            ProductMatchingService productMatchingService,
+            PartitionMaintenanceService partitionMaintenanceService,
+            PriceSeriesCache priceSeriesCache,
+            JobShardingService jobShardingService,
+            JobControlService jobControlService,
+            JobWorkerProperties properties) {
         this.jobRepository = jobRepository;
         this.jobErrorRepository = jobErrorRepository;
         this.productMatchingService = productMatchingService;
+        this.partitionMaintenanceService = partitionMaintenanceService;
+        this.priceSeriesCache = priceSeriesCache;
+        this.jobShardingService = jobShardingService;
+        this.jobControlService = jobControlService;
+        this.properties = properties;
+        this.workerId = properties.workerId().isBlank() ? defaultWorkerId() : properties.workerId();
+        for (String jobType : INTERNAL_JOB_TYPES) {
+            slots.put(jobType, new Semaphore(properties.concurrencyFor(jobType)));
+        }
     }
 
     /**
-     * Periodically check for and process non-crawler jobs
+     * Identity of this instance as recorded on claimed jobs, pid@hostname unless configured
      */
-    @Scheduled(fixedRate = 5000)
-    public void processJobs() {
+    private static String defaultWorkerId() {
+        String host;
         try {
-            // First check for product mapping jobs
-            processNextJobOfType("PRODUCT_MAPPING");
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return ProcessHandle.current().pid() + "@" + host;
+    }
 
-            // Then check for cleanup jobs
-            processNextJobOfType("PRODUCT_CLEANUP");
-        } catch (Exception e) {
-            logger.error("Error in job processing scheduler", e);
+    /**
+     * Slow fallback poll for non-crawler jobs, new jobs normally arrive through {@link JobEvent}.
+     * This only claims jobs and hands them to the worker pool, so it never holds up the other
+     * scheduled tasks.
+     */
+    @Scheduled(fixedRateString = "${jobs.poll-interval-ms:60000}")
+    public void processJobs() {
+        dispatch();
+    }
+
+    /**
+     * Wake the dispatcher as soon as an internal job is queued
+     */
+    @EventListener
+    public void onJobEvent(JobEvent event) {
+        if ("Created".equals(event.status()) && INTERNAL_JOB_TYPES.contains(event.jobType())) {
+            dispatch();
         }
     }
 
     /**
-     * Process the next available job of a specific type
+     * Start queued jobs while there are free slots. Safe to call from any thread; concurrent
+     * calls collapse into one extra dispatch round instead of being lost.
      */
-    private void processNextJobOfType(String jobType) {
-        // Find a job that's ready to process
-        Job job = jobRepository.findNextAvailableJob(jobType);
+    public void dispatch() {
+        dispatchRequested.set(true);
+        while (dispatchRequested.get() && dispatchLock.tryLock()) {
+            try {
+                while (dispatchRequested.getAndSet(false)) {
+                    for (String jobType : INTERNAL_JOB_TYPES) {
+                        fillSlots(jobType);
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("Error in job dispatcher", e);
+            } finally {
+                dispatchLock.unlock();
+            }
+        }
+    }
 
-        if (job != null) {
+    /**
+     * Claim and start jobs of one type until its slots are used up or the queue is empty
+     */
+    private void fillSlots(String jobType) {
+        Semaphore typeSlots = slots.get(jobType);
+        while (typeSlots.tryAcquire()) {
+            Job job;
             try {
-                // Mark job as running
-                job.setStatus("Running");
-                job.setStartedAt(LocalDateTime.now());
-                jobRepository.save(job);
-
-                // Process based on job type
-                String resultDescription;
-                if ("PRODUCT_MAPPING".equals(jobType)) {
-                    resultDescription = processProductMappingJob(job);
-                } else if ("PRODUCT_CLEANUP".equals(jobType)) {
-                    resultDescription = "";
-                } else {
-                    throw new IllegalArgumentException("Unsupported job type: " + jobType);
+                // Claim a job that's ready to process, it comes back already marked as running
+                job = jobRepository.claimNextAvailableJob(
+                        jobType, workerId, properties.perWebsiteLimit(), LocalDateTime.now());
+            } catch (RuntimeException e) {
+                typeSlots.release();
+                throw e;
+            }
+            if (job == null) {
+                typeSlots.release();
+                return;
+            }
+
+            logger.info("Worker {} claimed {} job {}", workerId, jobType, job.getId());
+            runningJobIds.add(job.getId());
+            workers.submit(() -> {
+                try {
+                    runJob(job);
+                } finally {
+                    runningJobIds.remove(job.getId());
+                    typeSlots.release();
+                    // A slot just freed up, start the next queued job right away
+                    dispatch();
                 }
+            });
+        }
+    }
 
-                // Mark job as completed
-                job.setStatus("Finished");
-                job.setFinishedAt(LocalDateTime.now());
-                job.setDescription(resultDescription);
-                jobRepository.save(job);
+    /**
+     * Run a claimed job to completion and record its outcome
+     */
+    private void runJob(Job job) {
+        String jobType = job.getJobType();
+        try {
+            // Process based on job type
+            String resultDescription;
+            if ("PRODUCT_MAPPING".equals(jobType)) {
+                resultDescription = processProductMappingJob(job);
+            } else if ("PRODUCT_CLEANUP".equals(jobType)) {
+                // Cleanup removes products and their history, stop serving it from memory
+                priceSeriesCache.clear();
+                resultDescription = "";
+            } else if ("PARTITION_MAINTENANCE".equals(jobType)) {
+                resultDescription = partitionMaintenanceService.runMaintenance();
+            } else {
+                throw new IllegalArgumentException("Unsupported job type: " + jobType);
+            }
 
-            } catch (Exception e) {
-                // Handle error
-                job.setStatus("Failed");
-                job.setFinishedAt(LocalDateTime.now());
-                job.setErrorMessage(e.getMessage());
-                jobRepository.save(job);
-
-                // Record detailed error
-                createJobError(job, e);
-                logger.error("Error processing {} job {}: {}", jobType, job.getId(), e.getMessage(), e);
+            if (JobShardingService.WAITING.equals(job.getStatus())) {
+                // Split into child jobs, the parent is finished once they all are
+                return;
             }
+
+            // Mark job as completed
+            completeRun(job, "Finished", LocalDateTime.now(), resultDescription, null);
+
+        } catch (JobStoppedException e) {
+            // Paused or cancelled, the work committed so far is kept
+            LocalDateTime finishedAt =
+                    JobControlService.CANCELLED.equals(e.getStatus()) ? LocalDateTime.now() : null;
+            if (completeRun(job, e.getStatus(), finishedAt, e.getDescription(), null)) {
+                logger.info("{} job {} stopped: {}", jobType, job.getId(), e.getStatus());
+            }
+
+        } catch (Exception e) {
+            // Handle error
+            completeRun(job, "Failed", LocalDateTime.now(), null, e.getMessage());
+
+            // Record detailed error
+            createJobError(job, e);
+            logger.error("Error processing {} job {}: {}", jobType, job.getId(), e.getMessage(), e);
+        } finally {
+            jobControlService.release(job.getId());
+        }
+    }
+
+    /**
+     * Write the outcome of a run. It is conditional on the lease, a run whose job was re-queued
+     * meanwhile must not overwrite what the next attempt does with it.
+     *
+     * @return false when the lease was lost and the outcome dropped
+     */
+    private boolean completeRun(
+            Job job, String status, LocalDateTime finishedAt, String description, String errorMessage) {
+        int updated = jobRepository.completeLeasedRun(
+                job.getId(), workerId, job.getAttempts(), status, finishedAt, description, errorMessage,
+                LocalDateTime.now());
+        if (updated == 0) {
+            logger.warn("{} job {} lost its lease during attempt {}, dropping outcome {}",
+                    job.getJobType(), job.getId(), job.getAttempts(), status);
+            return false;
         }
+        job.setStatus(status);
+        return true;
+    }
+
+    /**
+     * Identity this instance claims jobs under
+     */
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * Ids of the jobs currently executing on this instance
+     */
+    public Set<Integer> getRunningJobIds() {
+        return Set.copyOf(runningJobIds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
     }
 
     /**
@@ -95,11 +255,12 @@ public class JobProcessorService {
     private String processProductMappingJob(Job job) {
         StringBuilder description = new StringBuilder();
 
-        // Get parameters
+        // Get parameters, shard and chained jobs are scoped by their own columns instead
+        boolean scoped = job.getParentJobId() != null || job.getSourceJobId() != null;
         String category = null;
-        if (job.getParameters() != null && !job.getParameters().isEmpty()) {
+        if (!scoped && job.getParameters() != null && !job.getParameters().isEmpty()) {
             category = job.getParameters();
-        } else if (job.getConfig() != null && job.getConfig().getProductCategory() != null) {
+        } else if (!scoped && job.getConfig() != null && job.getConfig().getProductCategory() != null) {
             category = job.getConfig().getProductCategory().getCode();
         }
 
@@ -107,10 +268,21 @@ public class JobProcessorService {
         int newMappedProducts = 0;
         int updatedProducts = 0;
 
-        if (category != null) {
+        if (job.getParentJobId() != null && job.getConfig() != null) {
+            // Child of a sharded run, map exactly one config
+            String configCode = job.getConfig().getCode();
+            description.append("Processing products for config: ").append(configCode).append("\n");
+            newMappedProducts = productMatchingService.processItemsForConfig(configCode, job);
+        } else if (job.getSourceJobId() != null) {
+            description.append("Processing products for crawl job: ").append(job.getSourceJobId()).append("\n");
+            // Chained onto a finished crawl, only map what that crawl produced
+            newMappedProducts = productMatchingService.processItemsForCrawlJob(job.getSourceJobId(), job);
+        } else if (category != null) {
             description.append("Processing products for category: ").append(category).append("\n");
             // Process with category filter
             newMappedProducts = productMatchingService.processItemsByCategory(category, job);
+        } else if (jobShardingService.shardMappingJob(job)) {
+            return job.getDescription();
         } else {
             description.append("Processing all unmapped products\n");
             // Process all products
@@ -0,0 +1,117 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.dto.JobProgressDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live progress of the jobs running on this instance.
+ *
+ * <p>The worker of a job is the only writer of its counters and updates them after every group
+ * it maps; readers such as the progress stream take snapshots without locking. The job row only
+ * gets a copy of the counters every persist interval, instead of a rewrite of its description
+ * on every progress tick.
+ */
+@Component
+public class JobProgressRegistry {
+    private final Map<Integer, Progress> active = new ConcurrentHashMap<>();
+    private final long persistIntervalNanos;
+
+    public JobProgressRegistry(@Value("${jobs.progress-persist-interval-ms:30000}") long persistIntervalMs) {
+        this.persistIntervalNanos = TimeUnit.MILLISECONDS.toNanos(persistIntervalMs);
+    }
+
+    /**
+     * Counters of one running job
+     */
+    public final class Progress {
+        private final Integer jobId;
+        private final long startedNanos = System.nanoTime();
+        private final AtomicLong persistedNanos = new AtomicLong(startedNanos);
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger newProducts = new AtomicInteger();
+        private final AtomicInteger newVariants = new AtomicInteger();
+        private final AtomicInteger pricesRecorded = new AtomicInteger();
+
+        private Progress(Integer jobId, int total) {
+            this.jobId = jobId;
+            this.total.set(total);
+        }
+
+        /**
+         * Publish the worker's current totals
+         */
+        public void update(int processed, int skipped, int newProducts, int newVariants, int pricesRecorded) {
+            this.processed.set(processed);
+            this.skipped.set(skipped);
+            this.newProducts.set(newProducts);
+            this.newVariants.set(newVariants);
+            this.pricesRecorded.set(pricesRecorded);
+        }
+
+        /**
+         * True at most once per persist interval, for the caller that should write the snapshot
+         */
+        public boolean persistDue() {
+            long now = System.nanoTime();
+            long last = persistedNanos.get();
+            return now - last >= persistIntervalNanos && persistedNanos.compareAndSet(last, now);
+        }
+
+        public JobProgressDTO snapshot() {
+            int done = processed.get() + skipped.get();
+            int all = total.get();
+            long elapsedNanos = System.nanoTime() - startedNanos;
+
+            JobProgressDTO dto = new JobProgressDTO();
+            dto.setJobId(jobId);
+            dto.setStatus("Running");
+            dto.setLive(true);
+            dto.setTotal(all);
+            dto.setProcessed(processed.get());
+            dto.setSkipped(skipped.get());
+            dto.setNewProducts(newProducts.get());
+            dto.setNewVariants(newVariants.get());
+            dto.setPricesRecorded(pricesRecorded.get());
+            dto.setPercent(all > 0 ? Math.min(100, (int) (done * 100L / all)) : 0);
+            dto.setElapsedSeconds(TimeUnit.NANOSECONDS.toSeconds(elapsedNanos));
+            if (done > 0 && all > done) {
+                dto.setEtaSeconds(TimeUnit.NANOSECONDS.toSeconds(elapsedNanos / done * (all - done)));
+            }
+            return dto;
+        }
+    }
+
+    /**
+     * Start tracking a job, replacing any earlier run of the same job on this instance
+     */
+    public Progress start(Integer jobId, int total) {
+        Progress progress = new Progress(jobId, total);
+        if (jobId != null) {
+            active.put(jobId, progress);
+        }
+        return progress;
+    }
+
+    /**
+     * Live snapshot of a job running on this instance, null when it is not running here
+     */
+    public JobProgressDTO snapshot(Integer jobId) {
+        Progress progress = active.get(jobId);
+        return progress != null ? progress.snapshot() : null;
+    }
+
+    public void finish(Progress progress) {
+        if (progress.jobId != null) {
+            active.remove(progress.jobId, progress);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.dto.JobProgressDTO;
+import com.rijads.easycrawl.model.Job;
+import com.rijads.easycrawl.repository.JobRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams job progress to clients as server-sent events.
+ *
+ * <p>Jobs running on this instance are reported from {@link JobProgressRegistry}; anything else,
+ * including jobs running on another instance, falls back to the counters last persisted on the
+ * job row, with percent and ETA worked out from the persisted total. The stream ends with the
+ * event that reports a final status.
+ */
+@Service
+public class JobProgressService {
+    private static final Logger logger = LoggerFactory.getLogger(JobProgressService.class);
+
+    private static final List<String> FINAL_STATUSES =
+            List.of("Finished", "Failed", JobControlService.CANCELLED, JobControlService.PAUSED);
+    private static final long STREAM_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+
+    private final JobRepository jobRepository;
+    private final JobProgressRegistry progressRegistry;
+    private final long intervalMs;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "job-progress-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public JobProgressService(
+            JobRepository jobRepository,
+            JobProgressRegistry progressRegistry,
+            @Value("${jobs.progress-stream-interval-ms:1000}") long intervalMs) {
+        this.jobRepository = jobRepository;
+        this.progressRegistry = progressRegistry;
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * Current progress of a job, null when the job does not exist
+     */
+    public JobProgressDTO getProgress(Integer jobId) {
+        JobProgressDTO live = progressRegistry.snapshot(jobId);
+        if (live != null) {
+            return live;
+        }
+        return jobRepository.findById(String.valueOf(jobId)).map(this::fromRow).orElse(null);
+    }
+
+    /**
+     * Open a progress stream for an existing job
+     */
+    public SseEmitter stream(Integer jobId) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        AtomicBoolean closed = new AtomicBoolean(false);
+
+        task.set(ticker.scheduleAtFixedRate(() -> {
+            if (closed.get()) {
+                // Also covers a stream that ended before its task reference was set
+                cancel(task);
+                return;
+            }
+            try {
+                JobProgressDTO progress = getProgress(jobId);
+                if (progress != null) {
+                    emitter.send(SseEmitter.event().name("progress").data(progress));
+                }
+                if (progress == null || FINAL_STATUSES.contains(progress.getStatus())) {
+                    closed.set(true);
+                    emitter.complete();
+                }
+            } catch (IOException e) {
+                // The client went away
+                closed.set(true);
+                emitter.completeWithError(e);
+            } catch (Exception e) {
+                logger.error("Error streaming progress of job {}: {}", jobId, e.getMessage(), e);
+                closed.set(true);
+                emitter.completeWithError(e);
+            }
+        }, 0, intervalMs, TimeUnit.MILLISECONDS));
+
+        Runnable stop = () -> {
+            closed.set(true);
+            cancel(task);
+        };
+        emitter.onCompletion(stop);
+        emitter.onTimeout(stop);
+        emitter.onError(e -> stop.run());
+        return emitter;
+    }
+
+    private static void cancel(AtomicReference<ScheduledFuture<?>> task) {
+        ScheduledFuture<?> scheduled = task.get();
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+    }
+
+    private JobProgressDTO fromRow(Job job) {
+        JobProgressDTO dto = new JobProgressDTO();
+        dto.setJobId(job.getId());
+        dto.setStatus(job.getStatus());
+        dto.setLive(false);
+        dto.setProcessed(job.getItemsMapped());
+        dto.setSkipped(job.getItemsSkipped());
+        dto.setNewProducts(job.getProductsMatched());
+        dto.setPricesRecorded(job.getPricesRecorded());
+
+        int done = valueOf(job.getItemsMapped()) + valueOf(job.getItemsSkipped());
+        int all = valueOf(job.getItemsTotal());
+        if (job.getItemsTotal() != null) {
+            dto.setTotal(all);
+        }
+        if ("Finished".equals(job.getStatus())) {
+            dto.setPercent(100);
+        } else if (all > 0) {
+            dto.setPercent(Math.min(100, (int) (done * 100L / all)));
+        }
+        if (job.getStartedAt() != null) {
+            LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+            long elapsedSeconds = Math.max(0, Duration.between(job.getStartedAt(), end).toSeconds());
+            dto.setElapsedSeconds(elapsedSeconds);
+            if ("Running".equals(job.getStatus()) && done > 0 && all > done) {
+                dto.setEtaSeconds(elapsedSeconds * (all - done) / done);
+            }
+        }
+        return dto;
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+}
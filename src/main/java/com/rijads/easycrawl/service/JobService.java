@@ -1,44 +1,56 @@
 package com.rijads.easycrawl.service;
 
+import com.rijads.easycrawl.dto.CursorPageDTO;
 import com.rijads.easycrawl.dto.JobDTO;
 import com.rijads.easycrawl.dto.JobErrorDTO;
 import com.rijads.easycrawl.mapper.JobMapper;
-import com.rijads.easycrawl.model.CrawlerConfig;
 import com.rijads.easycrawl.model.Job;
-import com.rijads.easycrawl.repository.CrawlerConfigRepository;
 import com.rijads.easycrawl.repository.JobErrorRepository;
 import com.rijads.easycrawl.repository.JobRepository;
+import com.rijads.easycrawl.specification.KeysetPagination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Service for managing all types of jobs (crawler, product mapping, cleanup, etc.)
  */
 @Service
 public class JobService {
+    /** Scheduled and other bulk work, e.g. the hourly global mapping run */
+    public static final int PRIORITY_BULK = 0;
+    /** Follow-up work that keeps fresh data flowing, e.g. mapping chained onto a finished crawl */
+    public static final int PRIORITY_FOLLOW_UP = 5;
+    /** Scoped jobs a user started and is waiting for */
+    public static final int PRIORITY_MANUAL = 10;
+
+    private static final Set<String> CURSOR_SORTS = Set.of("created");
+
     private final Logger logger = LoggerFactory.getLogger(JobService.class);
     private final JobRepository repository;
-    private final CrawlerConfigRepository configRepository;
     private final JobErrorRepository jobErrorRepository;
     private final JobMapper jobMapper;
+    private final JobControlService jobControlService;
 
     public JobService(JobRepository repository, JobErrorRepository jobErrorRepository,
-                      JobMapper jobMapper, CrawlerConfigRepository configRepository) {
+                      JobMapper jobMapper, JobControlService jobControlService) {
         this.repository = repository;
         this.jobErrorRepository = jobErrorRepository;
         this.jobMapper = jobMapper;
-        this.configRepository = configRepository;
+        this.jobControlService = jobControlService;
     }
 
     /**
@@ -48,8 +60,7 @@ public class JobService {
     public void createScheduledJobs() {
         logger.info("Starting scheduled job creation");
 
-        // Create scheduled crawler jobs
-        createScheduledCrawlerJobs();
+        // Crawler jobs are created by createScheduledCrawlerJobs on its own, finer schedule
 
         // Create scheduled product mapping jobs
         createScheduledProductMappingJobs();
@@ -64,34 +75,33 @@ public class JobService {
     }
 
     /**
-     * Creates scheduled crawler jobs
-     */
-    private void createScheduledCrawlerJobs() {
-        // Existing logic for crawler jobs
-        List<CrawlerConfig> configs =  configRepository.findAllByAutoScheduleIsTrue();
-        for(CrawlerConfig config : configs) {
-            Job latestJob = repository.findFirstByConfigCodeAndJobTypeWhereTestrunIsFalseandStatusIsFinished(
-                    config.getCode(), "CRAWL");
-            LocalDateTime now = LocalDateTime.now();
-            if(latestJob == null || ChronoUnit.HOURS.between(latestJob.getCreated(), now) + 1 >= config.getAutoScheduleEvery()) {
-                Job job = new Job();
-                job.setStatus("Created");
-                job.setCreatedBy("Scheduler");
-                job.setCreated(LocalDateTime.now());
-                job.setConfig(config);
-                job.setCrawlerWebsite(config.getCrawlerWebsite());
-                job.setTestRun(false);
-                job.setJobType("CRAWL");
-                repository.save(job);
-                logger.info("Created crawler job: " + job.getId());
-            }
+     * Creates crawler jobs for every auto-scheduled config that is due, in one statement.
+     * Runs every few minutes so configs start close to their own interval instead of all at
+     * the top of the hour. Only one instance schedules at a time.
+     *
+     * @return the number of crawler jobs created
+     */
+    @Scheduled(fixedRateString = "${jobs.crawl-schedule-interval-ms:300000}")
+    @Transactional
+    public int createScheduledCrawlerJobs() {
+        if (!repository.tryLockCrawlScheduler()) {
+            return 0;
         }
+        int created = repository.insertDueCrawlerJobs(LocalDateTime.now(), PRIORITY_BULK);
+        if (created > 0) {
+            logger.info("Created {} scheduled crawler jobs", created);
+        }
+        return created;
     }
 
     /**
      * Creates scheduled product mapping jobs
      */
     private void createScheduledProductMappingJobs() {
+        if (repository.existsPendingGlobalMappingJob()) {
+            // The previous run is still queued, running or waiting for its child jobs
+            return;
+        }
         // Product mapping scheduling logic
         Job latestJob = repository.findFirstByConfigCodeAndJobTypeWhereTestrunIsFalseandStatusIsFinished(
                 null, "PRODUCT_MAPPING");
@@ -103,6 +113,7 @@ public class JobService {
             job.setCreated(LocalDateTime.now());
             job.setTestRun(false);
             job.setJobType("PRODUCT_MAPPING");
+            job.setPriority(PRIORITY_BULK);
             repository.save(job);
             logger.info("Created product mapping job: " + job.getId());
         }
@@ -118,14 +129,52 @@ public class JobService {
         job.setCreated(LocalDateTime.now());
         job.setTestRun(false);
         job.setJobType("PRODUCT_CLEANUP");
+        job.setPriority(PRIORITY_BULK);
         repository.save(job);
         logger.info("Created product cleanup job: " + job.getId());
     }
 
+    /**
+     * Creates the daily partition maintenance job. Only one instance schedules it, and not while
+     * an earlier one is still queued or running or when there are no partitioned tables to
+     * maintain.
+     */
+    @Scheduled(cron = "${partition.maintenance-cron:0 30 3 * * *}")
+    @Transactional
+    public void createScheduledPartitionMaintenanceJob() {
+        if (!repository.tryLockPartitionScheduler()) {
+            return;
+        }
+        if (repository.insertPartitionMaintenanceJob(LocalDateTime.now(), PRIORITY_BULK) > 0) {
+            logger.info("Created partition maintenance job");
+        }
+    }
+
     /**
      * Get all jobs with pagination
      */
     public Page<JobDTO> getAllJobs(final String jobType, final String status, final String crawlerConfigCode, final Pageable page) {
+        Page<Job> resEntities = repository.findAll(filter(jobType, status, crawlerConfigCode), page);
+        return resEntities.map(jobMapper::toDto);
+    }
+
+    /**
+     * Same filters as {@link #getAllJobs}, paged with a cursor instead of an offset
+     */
+    public CursorPageDTO<JobDTO> getJobSlice(
+            final String jobType,
+            final String status,
+            final String crawlerConfigCode,
+            final String cursor,
+            final String sort,
+            final Sort.Direction direction,
+            final Integer size) {
+        return KeysetPagination.fetch(
+                repository, filter(jobType, status, crawlerConfigCode),
+                cursor, sort, direction, size, CURSOR_SORTS, jobMapper::toDto);
+    }
+
+    private static Specification<Job> filter(final String jobType, final String status, final String crawlerConfigCode) {
         Specification<Job> spec = Specification.where(null);
 
         if (jobType != null) {
@@ -141,9 +190,7 @@ public class JobService {
             spec = spec.and((root, query, criteriaBuilder) ->
                     criteriaBuilder.like(criteriaBuilder.lower(root.get("config").get("code")), "%"+crawlerConfigCode+"%"));
         }
-
-        Page<Job> resEntities = repository.findAll(spec, page);
-        return resEntities.map(jobMapper::toDto);
+        return spec;
     }
 
     /**
@@ -178,9 +225,23 @@ public class JobService {
 
         entity.setCreatedBy(username);
         entity.setStatus("Created");
+        if (entity.getPriority() == null) {
+            entity.setPriority(defaultPriority(jobDTO));
+        }
         return jobMapper.toDto(repository.save(entity));
     }
 
+    /**
+     * Jobs created through the API jump ahead of scheduled work, except unscoped mapping runs
+     * over the whole backlog, which are bulk work no matter who started them
+     */
+    private int defaultPriority(JobDTO jobDTO) {
+        boolean unscopedMapping = "PRODUCT_MAPPING".equals(jobDTO.getJobType())
+                && jobDTO.getCrawlerConfigCode() == null
+                && (jobDTO.getParameters() == null || jobDTO.getParameters().isEmpty());
+        return unscopedMapping ? PRIORITY_BULK : PRIORITY_MANUAL;
+    }
+
     /**
      * Get a job by ID
      */
@@ -189,6 +250,37 @@ public class JobService {
         return entity.map(jobMapper::toDto).orElse(null);
     }
 
+    /**
+     * Record a heartbeat for a running job, used by the external crawler to keep its lease
+     */
+    public JobDTO heartbeat(Integer id) {
+        if (repository.touchHeartbeats(List.of(id), LocalDateTime.now()) == 0) {
+            return null;
+        }
+        return getJobById(String.valueOf(id));
+    }
+
+    /**
+     * Cancel a queued, paused or waiting job, or ask a running one to stop
+     */
+    public boolean cancel(Integer id) {
+        return jobControlService.cancel(id);
+    }
+
+    /**
+     * Pause a queued job, or ask a running one to pause after its current chunk
+     */
+    public boolean pause(Integer id) {
+        return jobControlService.pause(id);
+    }
+
+    /**
+     * Queue a paused job again
+     */
+    public boolean resume(Integer id) {
+        return jobControlService.resume(id);
+    }
+
     /**
      * Get jobs by type
      */
@@ -0,0 +1,173 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.config.JobWorkerProperties;
+import com.rijads.easycrawl.model.Job;
+import com.rijads.easycrawl.repository.CrawlerRawRepository;
+import com.rijads.easycrawl.repository.JobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Splits large global mapping runs into child jobs and rolls their results back up.
+ *
+ * <p>A global PRODUCT_MAPPING job whose backlog reaches the shard threshold enqueues one child
+ * job per crawler config with unprocessed items and moves to the Waiting status. Children are
+ * ordinary queued jobs, so any worker can claim them and a failing shard only loses its own
+ * items. Whenever a child ends, the parent's counters and description are recomputed from its
+ * children, and the parent finishes once all of them are finished, failed or cancelled.
+ *
+ * <p>Parent rows are only written with conditional updates: every instance refreshes waiting
+ * parents, and a parent cancelled meanwhile must stay cancelled.
+ */
+@Service
+public class JobShardingService {
+    private static final Logger logger = LoggerFactory.getLogger(JobShardingService.class);
+
+    public static final String WAITING = "Waiting";
+
+    private static final List<String> TERMINAL_STATUSES = List.of("Finished", "Failed", JobControlService.CANCELLED);
+
+    // Keeps the parent description readable for backlogs spread over many configs
+    private static final int MAX_LISTED_CHILDREN = 50;
+
+    private final JobRepository jobRepository;
+    private final CrawlerRawRepository crawlerRawRepository;
+    private final JobWorkerProperties properties;
+
+    public JobShardingService(
+            JobRepository jobRepository,
+            CrawlerRawRepository crawlerRawRepository,
+            JobWorkerProperties properties) {
+        this.jobRepository = jobRepository;
+        this.crawlerRawRepository = crawlerRawRepository;
+        this.properties = properties;
+    }
+
+    /**
+     * Split a global mapping job into per-config child jobs when its backlog is large enough.
+     * The children and the parent's Waiting status are committed together, so a child can never
+     * end before its parent is visible as waiting. Nothing is sharded when the run lost its lease
+     * or a pause or cancel was requested, the worker carries on and handles that.
+     *
+     * @return true when the job was sharded and must not be finished by its worker
+     */
+    @Transactional
+    public boolean shardMappingJob(Job parent) {
+        long backlog = crawlerRawRepository.countUnprocessed();
+        if (backlog < properties.mappingShardThreshold()) {
+            return false;
+        }
+
+        int shards = jobRepository.insertMappingShards(parent.getId(), LocalDateTime.now());
+        if (shards == 0) {
+            return false;
+        }
+
+        String description = "Split " + backlog + " unmapped items into " + shards + " child jobs\n";
+        if (jobRepository.markSharded(
+                parent.getId(), parent.getWorkerId(), parent.getAttempts(), description, LocalDateTime.now()) == 0) {
+            // Drop the children again
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            logger.info("Not sharding mapping job {}, its lease was lost or a control request is pending",
+                    parent.getId());
+            return false;
+        }
+        parent.setStatus(WAITING);
+        parent.setDescription(description);
+        logger.info("Sharded mapping job {} into {} child jobs for {} items", parent.getId(), shards, backlog);
+        return true;
+    }
+
+    @EventListener
+    public void onJobEvent(JobEvent event) {
+        if ("PRODUCT_MAPPING".equals(event.jobType()) && TERMINAL_STATUSES.contains(event.status())) {
+            refreshWaitingParents();
+        }
+    }
+
+    /**
+     * Recompute progress of every waiting parent, also the fallback for missed notifications
+     */
+    @Scheduled(fixedRateString = "${jobs.shard-scan-interval-ms:60000}")
+    public void refreshWaitingParents() {
+        for (Job parent : jobRepository.findByJobTypeAndStatus("PRODUCT_MAPPING", WAITING)) {
+            try {
+                refreshParent(parent);
+            } catch (Exception e) {
+                logger.error("Error refreshing sharded job {}: {}", parent.getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void refreshParent(Job parent) {
+        List<Job> children = jobRepository.findByParentJobIdOrderByIdAsc(parent.getId());
+        int done = 0;
+        int failed = 0;
+        int mapped = 0;
+        int skipped = 0;
+        int products = 0;
+        int prices = 0;
+        int total = 0;
+
+        StringBuilder childLines = new StringBuilder();
+        int listed = 0;
+        for (Job child : children) {
+            if (TERMINAL_STATUSES.contains(child.getStatus())) {
+                done++;
+            }
+            if ("Failed".equals(child.getStatus())) {
+                failed++;
+            }
+            mapped += valueOf(child.getItemsMapped());
+            skipped += valueOf(child.getItemsSkipped());
+            products += valueOf(child.getProductsMatched());
+            prices += valueOf(child.getPricesRecorded());
+            total += valueOf(child.getItemsTotal());
+
+            if (listed++ < MAX_LISTED_CHILDREN) {
+                childLines.append("- Job ").append(child.getId())
+                        .append(" (").append(child.getConfig() != null ? child.getConfig().getCode() : "-")
+                        .append("): ").append(child.getStatus())
+                        .append(", ").append(valueOf(child.getItemsMapped())).append(" mapped\n");
+            }
+        }
+        if (children.size() > MAX_LISTED_CHILDREN) {
+            childLines.append("... and ").append(children.size() - MAX_LISTED_CHILDREN).append(" more child jobs\n");
+        }
+
+        StringBuilder description = new StringBuilder();
+        description.append("Child jobs done: ").append(done).append(" of ").append(children.size())
+                .append(" (").append(failed).append(" failed)\n\n");
+        description.append("== RESULTS SUMMARY ==\n");
+        description.append("Successfully mapped: ").append(mapped).append("\n");
+        description.append("Skipped/unmappable: ").append(skipped).append("\n");
+        description.append("Products matched: ").append(products).append("\n");
+        description.append("Prices recorded: ").append(prices).append("\n\n");
+        description.append("== CHILD JOBS ==\n").append(childLines);
+
+        LocalDateTime now = LocalDateTime.now();
+        boolean complete = done == children.size();
+        String status = complete ? (failed > 0 ? "Failed" : "Finished") : WAITING;
+        String errorMessage = complete && failed > 0 ? failed + " of " + children.size() + " child jobs failed" : null;
+
+        int updated = jobRepository.updateWaitingParent(
+                parent.getId(), status, total, mapped, skipped, products, prices, description.toString(),
+                complete ? now : null, errorMessage, now);
+        if (updated > 0 && complete) {
+            logger.info("Sharded mapping job {} completed: {} mapped, {} of {} children failed",
+                    parent.getId(), mapped, failed, children.size());
+        }
+    }
+
+    private static int valueOf(Integer counter) {
+        return counter != null ? counter : 0;
+    }
+}
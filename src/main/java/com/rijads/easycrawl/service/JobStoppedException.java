@@ -0,0 +1,34 @@
+package com.rijads.easycrawl.service;
+
+/**
+ * Thrown by a job's work loop when it stopped early because the job was paused or cancelled.
+ * Everything up to the last committed chunk is kept.
+ */
+public class JobStoppedException extends RuntimeException {
+    private final String status;
+    private final String description;
+
+    public JobStoppedException(String status) {
+        this(status, null);
+    }
+
+    public JobStoppedException(String status, String description) {
+        super("Job stopped: " + status);
+        this.status = status;
+        this.description = description;
+    }
+
+    /**
+     * Status the job ends up in, Paused or Cancelled
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Summary of the work done before stopping, null to keep the job's description
+     */
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,146 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.config.PartitionProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of price_history and crawler_raw in shape: creates partitions
+ * ahead of time and detaches or drops the ones that fall out of the retention window.
+ * Tables that have not been converted with db/partition-price-history-and-crawler-raw.sql
+ * are left alone.
+ */
+@Service
+public class PartitionMaintenanceService {
+    private static final Logger logger = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    private static final Pattern PARTITION_SUFFIX = Pattern.compile("_y(\\d{4})m(\\d{2})$");
+    private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("'_y'yyyy'm'MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PartitionProperties properties;
+    private final PriceSeriesCache priceSeriesCache;
+
+    public PartitionMaintenanceService(
+            JdbcTemplate jdbcTemplate, PartitionProperties properties, PriceSeriesCache priceSeriesCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.priceSeriesCache = priceSeriesCache;
+    }
+
+    /**
+     * Run maintenance for all partitioned tables and return a description of what was done
+     */
+    public String runMaintenance() {
+        StringBuilder description = new StringBuilder();
+        maintainTable("price_history", properties.priceHistoryRetentionMonths(), description);
+        maintainTable("crawler_raw", properties.crawlerRawRetentionMonths(), description);
+        return description.toString();
+    }
+
+    private void maintainTable(String table, int retentionMonths, StringBuilder description) {
+        if (!isPartitioned(table)) {
+            description.append(table).append(": not partitioned, skipped\n");
+            return;
+        }
+
+        YearMonth current = YearMonth.now();
+        int created = 0;
+        for (int i = 0; i <= properties.monthsAhead(); i++) {
+            if (createPartition(table, current.plusMonths(i))) {
+                created++;
+            }
+        }
+
+        int expired = 0;
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = current.minusMonths(retentionMonths - 1L);
+            for (String partition : findPartitions(table)) {
+                Matcher matcher = PARTITION_SUFFIX.matcher(partition);
+                if (!matcher.find()) {
+                    continue; // default partition or something created by hand
+                }
+                YearMonth month = YearMonth.of(
+                        Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+                if (month.isBefore(oldestKept)) {
+                    expirePartition(table, partition);
+                    expired++;
+                }
+            }
+        }
+
+        if (expired > 0 && "price_history".equals(table)) {
+            // The cached series still hold the points of the expired partitions
+            priceSeriesCache.clear();
+        }
+
+        description.append(table)
+                .append(": ").append(created).append(" partitions created, ")
+                .append(expired).append(" partitions ")
+                .append(properties.retentionMode() == PartitionProperties.RetentionMode.DROP ? "dropped" : "detached")
+                .append("\n");
+    }
+
+    private boolean isPartitioned(String table) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_partitioned_table pt " +
+                "JOIN pg_class c ON c.oid = pt.partrelid " +
+                "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE n.nspname = 'public' AND c.relname = ?",
+                Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    private List<String> findPartitions(String table) {
+        return jdbcTemplate.queryForList(
+                "SELECT child.relname FROM pg_inherits i " +
+                "JOIN pg_class parent ON parent.oid = i.inhparent " +
+                "JOIN pg_class child ON child.oid = i.inhrelid " +
+                "JOIN pg_namespace n ON n.oid = parent.relnamespace " +
+                "WHERE n.nspname = 'public' AND parent.relname = ?",
+                String.class, table);
+    }
+
+    private boolean createPartition(String table, YearMonth month) {
+        String partition = table + month.format(SUFFIX_FORMAT);
+        if (relationExists(partition)) {
+            return false;
+        }
+
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS public." + partition +
+                " PARTITION OF public." + table +
+                " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        logger.info("Created partition {}", partition);
+        return true;
+    }
+
+    private void expirePartition(String table, String partition) {
+        // Names come from pg_catalog and match PARTITION_SUFFIX, so they are safe to inline
+        jdbcTemplate.execute("ALTER TABLE public." + table + " DETACH PARTITION public." + partition);
+        if (properties.retentionMode() == PartitionProperties.RetentionMode.DROP) {
+            jdbcTemplate.execute("DROP TABLE public." + partition);
+            logger.info("Dropped expired partition {}", partition);
+        } else {
+            logger.info("Detached expired partition {}", partition);
+        }
+    }
+
+    private boolean relationExists(String name) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE n.nspname = 'public' AND c.relname = ?",
+                Integer.class, name);
+        return count != null && count > 0;
+    }
+}
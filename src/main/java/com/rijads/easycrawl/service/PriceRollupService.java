@@ -0,0 +1,156 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.dto.PriceRollupDTO;
+import com.rijads.easycrawl.mapper.PriceRollupMapper;
+import com.rijads.easycrawl.model.PriceHistory;
+import com.rijads.easycrawl.model.PriceRollup;
+import com.rijads.easycrawl.model.ProductVariant;
+import com.rijads.easycrawl.repository.PriceRollupRepository;
+import com.rijads.easycrawl.repository.ProductRepository;
+import com.rijads.easycrawl.repository.ProductVariantRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maintains and serves the day/week/month price rollups used by charts.
+ */
+@Service
+public class PriceRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceRollupService.class);
+
+    // Open-ended ranges are clamped to these so the repository can use a plain BETWEEN
+    private static final LocalDate MIN_BUCKET = LocalDate.of(1970, 1, 1);
+    private static final LocalDate MAX_BUCKET = LocalDate.of(9999, 12, 31);
+
+    private final PriceRollupRepository rollupRepository;
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository variantRepository;
+    private final PriceRollupMapper rollupMapper;
+
+    public PriceRollupService(
+            PriceRollupRepository rollupRepository,
+            ProductRepository productRepository,
+            ProductVariantRepository variantRepository,
+            PriceRollupMapper rollupMapper) {
+        this.rollupRepository = rollupRepository;
+        this.productRepository = productRepository;
+        this.variantRepository = variantRepository;
+        this.rollupMapper = rollupMapper;
+    }
+
+    /**
+     * Fold a freshly written price history entry into the variant and product rollups
+     */
+    public void recordSample(PriceHistory history) {
+        ProductVariant variant = history.getVariant();
+        if (variant == null || history.getPrice() == null || history.getRecordedAt() == null) {
+            return;
+        }
+
+        LocalDate day = history.getRecordedAt().toLocalDate();
+        LocalDate week = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate month = day.withDayOfMonth(1);
+
+        rollupRepository.upsertSample(
+                PriceRollup.Scope.VARIANT.name(), variant.getId(),
+                day, week, month, history.getPrice(), history.getRecordedAt());
+
+        if (variant.getProduct() != null) {
+            rollupRepository.upsertSample(
+                    PriceRollup.Scope.PRODUCT.name(), variant.getProduct().getId(),
+                    day, week, month, history.getPrice(), history.getRecordedAt());
+        }
+    }
+
+    /**
+     * Recompute the buckets of a price history entry that was rewritten in place. The entry must
+     * already be flushed, the buckets are rebuilt from the table.
+     */
+    public void recomputeSample(PriceHistory history) {
+        ProductVariant variant = history.getVariant();
+        if (variant == null || history.getRecordedAt() == null) {
+            return;
+        }
+
+        LocalDate day = history.getRecordedAt().toLocalDate();
+        LocalDate week = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate month = day.withDayOfMonth(1);
+
+        rollupRepository.recomputeVariantBuckets(variant.getId(), day, week, month);
+        if (variant.getProduct() != null) {
+            rollupRepository.recomputeProductBuckets(variant.getProduct().getId(), day, week, month);
+        }
+    }
+
+    /**
+     * Drop the rollups of deleted products and variants
+     */
+    public void deleteRollups(Collection<Integer> productIds, Collection<Integer> variantIds) {
+        if (!variantIds.isEmpty()) {
+            rollupRepository.deleteByScopeAndScopeIdIn(PriceRollup.Scope.VARIANT, variantIds);
+        }
+        if (!productIds.isEmpty()) {
+            rollupRepository.deleteByScopeAndScopeIdIn(PriceRollup.Scope.PRODUCT, productIds);
+        }
+    }
+
+    /**
+     * Get rollup buckets for a single variant
+     */
+    public List<PriceRollupDTO> getVariantRollups(
+            Integer variantId, PriceRollup.Granularity granularity, LocalDate from, LocalDate to) {
+        if (!variantRepository.existsById(variantId)) {
+            throw new EntityNotFoundException("Variant not found");
+        }
+        return findRollups(PriceRollup.Scope.VARIANT, variantId, granularity, from, to);
+    }
+
+    /**
+     * Get rollup buckets across all variants of a product
+     */
+    public List<PriceRollupDTO> getProductRollups(
+            Integer productId, PriceRollup.Granularity granularity, LocalDate from, LocalDate to) {
+        if (!productRepository.existsById(productId)) {
+            throw new EntityNotFoundException("Product not found");
+        }
+        return findRollups(PriceRollup.Scope.PRODUCT, productId, granularity, from, to);
+    }
+
+    /**
+     * Recompute every rollup from the raw price history
+     */
+    @Transactional
+    public void rebuildAll() {
+        logger.info("Rebuilding price rollups from price history");
+        rollupRepository.deleteAllBuckets();
+
+        int rows = 0;
+        for (PriceRollup.Granularity granularity : PriceRollup.Granularity.values()) {
+            String unit = granularity.name().toLowerCase();
+            rows += rollupRepository.rebuildVariantBuckets(granularity.name(), unit);
+            rows += rollupRepository.rebuildProductBuckets(granularity.name(), unit);
+        }
+        logger.info("Price rollup rebuild finished, {} buckets written", rows);
+    }
+
+    private List<PriceRollupDTO> findRollups(
+            PriceRollup.Scope scope, Integer scopeId, PriceRollup.Granularity granularity,
+            LocalDate from, LocalDate to) {
+        List<PriceRollup> buckets = rollupRepository
+                .findByScopeAndScopeIdAndGranularityAndBucketStartBetweenOrderByBucketStartAsc(
+                        scope, scopeId, granularity,
+                        from != null ? from : MIN_BUCKET,
+                        to != null ? to : MAX_BUCKET);
+        return rollupMapper.toDtoList(buckets);
+    }
+}
@@ -0,0 +1,548 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.dto.PriceHistoryDTO;
+import com.rijads.easycrawl.model.PriceHistory;
+import com.rijads.easycrawl.utility.LttbDownsampler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory cache of per-variant price history held as parallel primitive arrays.
+ *
+ * <p>Series are loaded from the database on first access and afterwards kept up to date by the
+ * mapping job, which appends every price it records once its transaction commits. Prices committed
+ * while a series is being loaded are held back and applied to it before it is published, so none
+ * fall between the database read and the cache. The cache is bounded by an estimated byte budget
+ * and evicts the least recently used series first.
+ *
+ * <p>Only this instance's commits reach its cache, so series are reloaded once they are older than
+ * the configured TTL to pick up prices written by other instances. Evictions and {@link #clear()}
+ * also discard loads that were in flight when they happened.
+ */
+@Component
+public class PriceSeriesCache {
+    private static final Logger logger = LoggerFactory.getLogger(PriceSeriesCache.class);
+
+    // Marker for nullable money columns (oldPrice, discount)
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    // Money in cents and time in epoch seconds, so rows are read without BigDecimal or LocalDateTime
+    private static final String LOAD_SQL =
+            "SELECT ph.id, CAST(FLOOR(EXTRACT(EPOCH FROM ph.recorded_at)) AS bigint), " +
+            "CAST(ROUND(ph.price * 100) AS bigint), CAST(ROUND(ph.old_price * 100) AS bigint), " +
+            "CAST(ROUND(ph.discount * 100) AS bigint), ph.price_string, w.code, w.name " +
+            "FROM price_history ph JOIN crawler_website w ON w.code = ph.website_code " +
+            "WHERE ph.variant_id = ? ORDER BY ph.recorded_at ASC, ph.id ASC";
+    private static final int LOAD_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long maxBytes;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<Integer, Series> series = new LinkedHashMap<>(256, 0.75f, true);
+    // Variants being loaded, with the points committed meanwhile
+    private final Map<Integer, PendingLoad> loading = new HashMap<>();
+    private long totalBytes = 0;
+    // Bumped by evictions, loads started before a bump are not cached
+    private long generation = 0;
+
+    public PriceSeriesCache(
+            JdbcTemplate jdbcTemplate,
+            @Value("${price-series-cache.max-bytes:67108864}") long maxBytes,
+            @Value("${price-series-cache.ttl-ms:300000}") long ttlMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Get the price history of the given variants, newest first. Entries outside [from, to] are
+     * skipped and the result is downsampled with LTTB when maxPoints is positive.
+     */
+    public List<PriceHistoryDTO> getHistory(
+            List<Integer> variantIds, LocalDate from, LocalDate to, int maxPoints) {
+        int fromDay = from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE;
+        int toDay = to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE;
+
+        // Work on copies so concurrent appends from the mapping job cannot be observed half-done
+        List<Series> sources = new ArrayList<>(variantIds.size());
+        for (Integer variantId : variantIds) {
+            Series cached = getOrLoad(variantId);
+            synchronized (cached) {
+                sources.add(cached.copy());
+            }
+        }
+
+        // k-way merge of the already sorted series into one ascending set of references
+        int total = 0;
+        for (Series source : sources) {
+            total += source.size;
+        }
+        int[] sourceIndex = new int[total];
+        int[] pointIndex = new int[total];
+        long[] x = new long[total];
+        double[] y = new double[total];
+        int count = 0;
+
+        int[] heads = new int[sources.size()];
+        for (int s = 0; s < sources.size(); s++) {
+            Series source = sources.get(s);
+            heads[s] = source.lowerBound(fromDay);
+        }
+        while (true) {
+            int best = -1;
+            long bestTime = Long.MAX_VALUE;
+            for (int s = 0; s < sources.size(); s++) {
+                Series source = sources.get(s);
+                int head = heads[s];
+                if (head < source.size && source.epochDay[head] <= toDay) {
+                    long time = source.epochSecond(head);
+                    if (time < bestTime) {
+                        bestTime = time;
+                        best = s;
+                    }
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            Series source = sources.get(best);
+            int head = heads[best]++;
+            sourceIndex[count] = best;
+            pointIndex[count] = head;
+            x[count] = bestTime;
+            y[count] = source.priceCents[head];
+            count++;
+        }
+
+        int[] selected;
+        if (maxPoints > 0 && count > maxPoints) {
+            selected = LttbDownsampler.downsample(
+                    Arrays.copyOf(x, count), Arrays.copyOf(y, count), maxPoints);
+        } else {
+            selected = new int[count];
+            for (int i = 0; i < count; i++) {
+                selected[i] = i;
+            }
+        }
+
+        List<PriceHistoryDTO> result = new ArrayList<>(selected.length);
+        for (int i = selected.length - 1; i >= 0; i--) {
+            int merged = selected[i];
+            result.add(sources.get(sourceIndex[merged]).toDto(pointIndex[merged]));
+        }
+        return result;
+    }
+
+    /**
+     * Apply a written price history entry to the cached series once the surrounding
+     * transaction commits. Variants that are neither cached nor loading are left to load lazily.
+     */
+    public void record(PriceHistory history) {
+        if (history.getVariant() == null || history.getId() == null || history.getRecordedAt() == null) {
+            return;
+        }
+
+        Integer variantId = history.getVariant().getId();
+        Point point = new Point(
+                history.getId(), history.getRecordedAt(),
+                toCents(history.getPrice()), toCents(history.getOldPrice()), toCents(history.getDiscount()),
+                history.getPriceString(),
+                history.getWebsite() != null ? history.getWebsite().getCode() : null,
+                history.getWebsite() != null ? history.getWebsite().getName() : null);
+
+        afterCommit(() -> {
+            Series target;
+            synchronized (this) {
+                target = series.get(variantId);
+                if (target == null) {
+                    PendingLoad pendingLoad = loading.get(variantId);
+                    if (pendingLoad != null) {
+                        pendingLoad.points.add(point);
+                    }
+                    return;
+                }
+            }
+            long before;
+            long after;
+            synchronized (target) {
+                before = target.estimatedBytes();
+                target.apply(point);
+                after = target.estimatedBytes();
+            }
+            synchronized (this) {
+                if (series.get(variantId) == target) {
+                    totalBytes += after - before;
+                    evictOverBudget();
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop a variant's series, e.g. after its history was deleted. It is dropped again once the
+     * surrounding transaction commits, so a reload in between cannot keep the deleted points.
+     */
+    public void evict(Integer variantId) {
+        evictNow(variantId);
+        afterCommit(() -> evictNow(variantId));
+    }
+
+    private synchronized void evictNow(Integer variantId) {
+        generation++;
+        Series removed = series.remove(variantId);
+        if (removed != null) {
+            totalBytes -= removed.estimatedBytes();
+        }
+    }
+
+    /**
+     * Drop every series, e.g. after partitions of price_history were detached or dropped
+     */
+    public synchronized void clear() {
+        generation++;
+        series.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized boolean contains(Integer variantId) {
+        return series.containsKey(variantId);
+    }
+
+    public synchronized long getEstimatedBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getSeriesCount() {
+        return series.size();
+    }
+
+    private Series getOrLoad(Integer variantId) {
+        PendingLoad pendingLoad;
+        long loadGeneration;
+        synchronized (this) {
+            Series cached = series.get(variantId);
+            if (cached != null) {
+                if (ttlMillis <= 0 || System.currentTimeMillis() - cached.loadedAt < ttlMillis) {
+                    return cached;
+                }
+                // Expired, other instances may have written prices since it was loaded
+                series.remove(variantId);
+                totalBytes -= cached.estimatedBytes();
+            }
+            // Registered before the read, so every commit after it is either read or held back
+            pendingLoad = loading.computeIfAbsent(variantId, id -> new PendingLoad());
+            pendingLoad.loaders++;
+            loadGeneration = generation;
+        }
+
+        Series loaded = null;
+        try {
+            loaded = load(variantId);
+        } finally {
+            synchronized (this) {
+                if (--pendingLoad.loaders == 0) {
+                    loading.remove(variantId);
+                }
+                if (loaded != null) {
+                    // Points are keyed by id, the ones the read already saw are just replaced
+                    for (Point point : pendingLoad.points) {
+                        loaded.apply(point);
+                    }
+                }
+            }
+        }
+
+        synchronized (this) {
+            if (generation != loadGeneration) {
+                // Evicted while loading, the read may predate the deletion
+                return loaded;
+            }
+            // Another request may have loaded it meanwhile, keep the first one
+            Series existing = series.putIfAbsent(variantId, loaded);
+            if (existing != null) {
+                return existing;
+            }
+            totalBytes += loaded.estimatedBytes();
+            evictOverBudget();
+            return loaded;
+        }
+    }
+
+    private Series load(Integer variantId) {
+        Series loaded = new Series(variantId, 16);
+        jdbcTemplate.query(LOAD_SQL, statement -> {
+            statement.setInt(1, variantId);
+            statement.setFetchSize(LOAD_FETCH_SIZE);
+        }, row -> {
+            if (loaded.websiteCode == null) {
+                loaded.websiteCode = row.getString(7);
+                loaded.websiteName = row.getString(8);
+            }
+            int id = row.getInt(1);
+            long time = row.getLong(2);
+            long price = row.getLong(3);
+            long oldPrice = row.getLong(4);
+            if (row.wasNull()) {
+                oldPrice = NO_VALUE;
+            }
+            long discount = row.getLong(5);
+            if (row.wasNull()) {
+                discount = NO_VALUE;
+            }
+            loaded.append(id, time, price, oldPrice, discount, row.getString(6));
+        });
+        logger.debug("Loaded price series for variant {} with {} points", variantId, loaded.size);
+        return loaded;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<Integer, Series>> iterator = series.entrySet().iterator();
+        // Always keep the most recently used series, even if it alone exceeds the budget
+        while (totalBytes > maxBytes && series.size() > 1 && iterator.hasNext()) {
+            Series eldest = iterator.next().getValue();
+            iterator.remove();
+            totalBytes -= eldest.estimatedBytes();
+        }
+    }
+
+    private static long toCents(BigDecimal value) {
+        return value == null ? NO_VALUE : value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return cents == NO_VALUE ? null : BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * A committed price history entry on its way into a series
+     */
+    private record Point(
+            int id, LocalDateTime recordedAt, long price, long oldPrice, long discount,
+            String priceString, String websiteCode, String websiteName) {}
+
+    /**
+     * Points committed while a variant's series is being read, shared by concurrent loaders
+     */
+    private static final class PendingLoad {
+        private final List<Point> points = new ArrayList<>();
+        private int loaders = 0;
+    }
+
+    /**
+     * One variant's history in ascending recordedAt order
+     */
+    private static final class Series {
+        private final Integer variantId;
+        private final long loadedAt = System.currentTimeMillis();
+        private String websiteCode;
+        private String websiteName;
+
+        private int size = 0;
+        private int[] ids;
+        private int[] epochDay;
+        private int[] secondOfDay;
+        private long[] priceCents;
+        private long[] oldPriceCents;
+        private long[] discountCents;
+        private String[] priceStrings;
+        private long stringBytes = 0;
+
+        Series(Integer variantId, int capacity) {
+            this.variantId = variantId;
+            this.ids = new int[capacity];
+            this.epochDay = new int[capacity];
+            this.secondOfDay = new int[capacity];
+            this.priceCents = new long[capacity];
+            this.oldPriceCents = new long[capacity];
+            this.discountCents = new long[capacity];
+            this.priceStrings = new String[capacity];
+        }
+
+        Series copy() {
+            Series copy = new Series(variantId, Math.max(size, 1));
+            copy.websiteCode = websiteCode;
+            copy.websiteName = websiteName;
+            copy.size = size;
+            copy.stringBytes = stringBytes;
+            System.arraycopy(ids, 0, copy.ids, 0, size);
+            System.arraycopy(epochDay, 0, copy.epochDay, 0, size);
+            System.arraycopy(secondOfDay, 0, copy.secondOfDay, 0, size);
+            System.arraycopy(priceCents, 0, copy.priceCents, 0, size);
+            System.arraycopy(oldPriceCents, 0, copy.oldPriceCents, 0, size);
+            System.arraycopy(discountCents, 0, copy.discountCents, 0, size);
+            System.arraycopy(priceStrings, 0, copy.priceStrings, 0, size);
+            return copy;
+        }
+
+        long epochSecond(int index) {
+            return epochDay[index] * 86_400L + secondOfDay[index];
+        }
+
+        /** First index whose day is on or after the given epoch day */
+        int lowerBound(int day) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (epochDay[mid] < day) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void apply(Point point) {
+            if (websiteCode == null) {
+                websiteCode = point.websiteCode();
+                websiteName = point.websiteName();
+            }
+            upsert(point.id(), point.recordedAt(), point.price(), point.oldPrice(), point.discount(),
+                    point.priceString());
+        }
+
+        /**
+         * Add a point after the last one, the rows of a load arrive in order with distinct ids
+         */
+        void append(int id, long time, long price, long oldPrice, long discount, String priceString) {
+            ensureCapacity(size + 1);
+            ids[size] = id;
+            epochDay[size] = (int) Math.floorDiv(time, 86_400L);
+            secondOfDay[size] = (int) Math.floorMod(time, 86_400L);
+            priceCents[size] = price;
+            oldPriceCents[size] = oldPrice;
+            discountCents[size] = discount;
+            priceStrings[size] = priceString;
+            stringBytes += stringBytes(priceString);
+            size++;
+        }
+
+        /**
+         * Insert a point, or replace the point with the same id (the mapping job rewrites the
+         * day's entry in place when the price changes)
+         */
+        void upsert(int id, LocalDateTime recordedAt, long price, long oldPrice, long discount, String priceString) {
+            // Updated entries are almost always today's, so search from the end
+            for (int i = size - 1; i >= 0; i--) {
+                if (ids[i] == id) {
+                    remove(i);
+                    break;
+                }
+            }
+
+            int day = (int) recordedAt.toLocalDate().toEpochDay();
+            int second = recordedAt.toLocalTime().toSecondOfDay();
+            long time = day * 86_400L + second;
+
+            int position = size;
+            while (position > 0 && epochSecond(position - 1) > time) {
+                position--;
+            }
+
+            ensureCapacity(size + 1);
+            int tail = size - position;
+            System.arraycopy(ids, position, ids, position + 1, tail);
+            System.arraycopy(epochDay, position, epochDay, position + 1, tail);
+            System.arraycopy(secondOfDay, position, secondOfDay, position + 1, tail);
+            System.arraycopy(priceCents, position, priceCents, position + 1, tail);
+            System.arraycopy(oldPriceCents, position, oldPriceCents, position + 1, tail);
+            System.arraycopy(discountCents, position, discountCents, position + 1, tail);
+            System.arraycopy(priceStrings, position, priceStrings, position + 1, tail);
+
+            ids[position] = id;
+            epochDay[position] = day;
+            secondOfDay[position] = second;
+            priceCents[position] = price;
+            oldPriceCents[position] = oldPrice;
+            discountCents[position] = discount;
+            priceStrings[position] = priceString;
+            stringBytes += stringBytes(priceString);
+            size++;
+        }
+
+        private void remove(int index) {
+            stringBytes -= stringBytes(priceStrings[index]);
+            int tail = size - index - 1;
+            System.arraycopy(ids, index + 1, ids, index, tail);
+            System.arraycopy(epochDay, index + 1, epochDay, index, tail);
+            System.arraycopy(secondOfDay, index + 1, secondOfDay, index, tail);
+            System.arraycopy(priceCents, index + 1, priceCents, index, tail);
+            System.arraycopy(oldPriceCents, index + 1, oldPriceCents, index, tail);
+            System.arraycopy(discountCents, index + 1, discountCents, index, tail);
+            System.arraycopy(priceStrings, index + 1, priceStrings, index, tail);
+            size--;
+            priceStrings[size] = null;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= ids.length) {
+                return;
+            }
+            int capacity = Math.max(required, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, capacity);
+            epochDay = Arrays.copyOf(epochDay, capacity);
+            secondOfDay = Arrays.copyOf(secondOfDay, capacity);
+            priceCents = Arrays.copyOf(priceCents, capacity);
+            oldPriceCents = Arrays.copyOf(oldPriceCents, capacity);
+            discountCents = Arrays.copyOf(discountCents, capacity);
+            priceStrings = Arrays.copyOf(priceStrings, capacity);
+        }
+
+        /** Rough heap footprint: three int arrays, three long arrays, one reference array, strings */
+        long estimatedBytes() {
+            return 128 + (long) ids.length * (3 * 4 + 3 * 8 + 8) + stringBytes;
+        }
+
+        PriceHistoryDTO toDto(int index) {
+            PriceHistoryDTO dto = new PriceHistoryDTO();
+            dto.setId(ids[index]);
+            dto.setVariantId(variantId);
+            dto.setWebsiteCode(websiteCode);
+            dto.setWebsiteName(websiteName);
+            dto.setPrice(fromCents(priceCents[index]));
+            dto.setOldPrice(fromCents(oldPriceCents[index]));
+            dto.setDiscount(fromCents(discountCents[index]));
+            dto.setPriceString(priceStrings[index]);
+            dto.setRecordedAt(LocalDateTime.of(
+                    LocalDate.ofEpochDay(epochDay[index]), LocalTime.ofSecondOfDay(secondOfDay[index])));
+            return dto;
+        }
+
+        private static long stringBytes(String value) {
+            return value == null ? 0 : 40 + 2L * value.length();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.rijads.easycrawl.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Ids of products that changed, handed to the in-memory product indexes once the changing
+ * transaction commits.
+ *
+ * <p>Every index subscribes once and drains its own copy of the queue at its own pace, so a slow
+ * or rebuilding index holds up no other. Ids are deduplicated per subscriber; an index re-reads
+ * the product and treats a missing one as deleted.
+ */
+@Component
+public class ProductChangeQueue {
+
+    /**
+     * Applies one batch of changed product ids to an index
+     */
+    @FunctionalInterface
+    public interface BatchHandler {
+        void apply(List<Integer> productIds) throws Exception;
+    }
+
+    /**
+     * One index's view of the queue
+     */
+    public static final class Subscription {
+        private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+
+        private Subscription() {}
+
+        /**
+         * Hand the queued ids to the handler in batches while holding the index's update lock.
+         * Nothing happens while someone else holds the lock, e.g. a rebuild; the ids stay queued
+         * for the next call. A batch whose handler fails is queued again.
+         *
+         * @return whether any ids were applied
+         */
+        public boolean drain(Lock updateLock, int batchSize, BatchHandler handler) throws Exception {
+            if (pending.isEmpty() || !updateLock.tryLock()) {
+                return false;
+            }
+            try {
+                boolean applied = false;
+                while (!pending.isEmpty()) {
+                    List<Integer> batch = new ArrayList<>(batchSize);
+                    Iterator<Integer> iterator = pending.iterator();
+                    while (iterator.hasNext() && batch.size() < batchSize) {
+                        batch.add(iterator.next());
+                        iterator.remove();
+                    }
+                    try {
+                        handler.apply(batch);
+                    } catch (Exception e) {
+                        pending.addAll(batch);
+                        throw e;
+                    }
+                    applied = true;
+                }
+                return applied;
+            } finally {
+                updateLock.unlock();
+            }
+        }
+    }
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public Subscription subscribe() {
+        Subscription subscription = new Subscription();
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Queue a product for every index once the current transaction commits
+     */
+    public void markChanged(Integer productId) {
+        if (productId == null) {
+            return;
+        }
+        afterCommit(() -> {
+            for (Subscription subscription : subscriptions) {
+                subscription.pending.add(productId);
+            }
+        });
+    }
+
+    /**
+     * Run an action once the current transaction commits, right away without one
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.dto.PriceRollupDTO;
+import com.rijads.easycrawl.dto.ProductComparisonDTO;
+import com.rijads.easycrawl.dto.ProductDTO;
+import com.rijads.easycrawl.dto.StorePriceDTO;
+import com.rijads.easycrawl.mapper.PriceRollupMapper;
+import com.rijads.easycrawl.model.PriceRollup;
+import com.rijads.easycrawl.repository.PriceRollupRepository;
+import com.rijads.easycrawl.repository.ProductRepository;
+import com.rijads.easycrawl.repository.ProductVariantRepository;
+import com.rijads.easycrawl.specification.ProductSpecification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Side by side comparison of several products.
+ *
+ * <p>Whatever the number of products, a comparison costs three statements: the product read
+ * model with its stored price aggregates, the current offer of every store, and the daily
+ * product rollups of the trend window. Results are assembled in memory.
+ */
+@Service
+public class ProductComparisonService {
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository variantRepository;
+    private final PriceRollupRepository rollupRepository;
+    private final PriceRollupMapper rollupMapper;
+    private final int maxProducts;
+    private final int trendDays;
+
+    public ProductComparisonService(
+            ProductRepository productRepository,
+            ProductVariantRepository variantRepository,
+            PriceRollupRepository rollupRepository,
+            PriceRollupMapper rollupMapper,
+            @Value("${compare.max-products:50}") int maxProducts,
+            @Value("${compare.trend-days:30}") int trendDays) {
+        this.productRepository = productRepository;
+        this.variantRepository = variantRepository;
+        this.rollupRepository = rollupRepository;
+        this.rollupMapper = rollupMapper;
+        this.maxProducts = maxProducts;
+        this.trendDays = trendDays;
+    }
+
+    /**
+     * Compare products in the order they were requested; unknown ids are left out
+     */
+    @Transactional(readOnly = true)
+    public List<ProductComparisonDTO> compare(List<Integer> productIds) {
+        Set<Integer> ids = productIds == null
+                ? Set.of()
+                : productIds.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        if (ids.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No product ids to compare");
+        }
+        if (ids.size() > maxProducts) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxProducts + " products can be compared at once");
+        }
+
+        Map<Integer, ProductDTO> products = productRepository
+                .findProductRows(ProductSpecification.hasIdIn(ids), Pageable.unpaged())
+                .stream()
+                .collect(Collectors.toMap(ProductDTO::getId, Function.identity()));
+        if (products.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Integer, List<StorePriceDTO>> stores = new HashMap<>();
+        for (ProductVariantRepository.StorePriceRow row : variantRepository.findStorePricesByProductIdIn(products.keySet())) {
+            stores.computeIfAbsent(row.getProductId(), id -> new ArrayList<>()).add(toStorePrice(row));
+        }
+
+        Map<Integer, List<PriceRollup>> trends = rollupRepository
+                .findByScopeAndScopeIdInAndGranularityAndBucketStartGreaterThanEqualOrderByScopeIdAscBucketStartAsc(
+                        PriceRollup.Scope.PRODUCT, products.keySet(), PriceRollup.Granularity.DAY,
+                        LocalDate.now().minusDays(trendDays))
+                .stream()
+                .collect(Collectors.groupingBy(PriceRollup::getScopeId));
+
+        List<ProductComparisonDTO> result = new ArrayList<>(products.size());
+        for (Integer id : ids) {
+            ProductDTO product = products.get(id);
+            if (product == null) {
+                continue;
+            }
+            List<StorePriceDTO> productStores = stores.getOrDefault(id, List.of());
+            List<PriceRollupDTO> trend = rollupMapper.toDtoList(trends.getOrDefault(id, List.of()));
+
+            ProductComparisonDTO dto = new ProductComparisonDTO();
+            dto.setProduct(product);
+            dto.setStores(productStores);
+            dto.setCheapestStore(cheapest(productStores));
+            dto.setTrend(trend);
+            if (trend.size() > 1) {
+                BigDecimal change = trend.get(trend.size() - 1).getMinPrice().subtract(trend.get(0).getMinPrice());
+                dto.setTrendChange(change);
+                dto.setTrendDirection(change.signum() > 0 ? "UP" : change.signum() < 0 ? "DOWN" : "FLAT");
+            }
+            result.add(dto);
+        }
+        return result;
+    }
+
+    /**
+     * Cheapest store that has the product in stock, or the cheapest one when none has
+     */
+    private static StorePriceDTO cheapest(List<StorePriceDTO> stores) {
+        Comparator<StorePriceDTO> byPrice = Comparator.comparing(StorePriceDTO::getPrice);
+        return stores.stream()
+                .filter(store -> !Boolean.FALSE.equals(store.getInStock()))
+                .min(byPrice)
+                .or(() -> stores.stream().min(byPrice))
+                .orElse(null);
+    }
+
+    private static StorePriceDTO toStorePrice(ProductVariantRepository.StorePriceRow row) {
+        StorePriceDTO dto = new StorePriceDTO();
+        dto.setWebsiteCode(row.getWebsiteCode());
+        dto.setWebsiteName(row.getWebsiteName());
+        dto.setPrice(row.getPrice());
+        dto.setCurrency(row.getCurrency());
+        dto.setInStock(row.getInStock());
+        dto.setSourceUrl(row.getSourceUrl());
+        dto.setLastUpdated(row.getModified());
+        dto.setVariantCount(row.getVariantCount());
+        return dto;
+    }
+}
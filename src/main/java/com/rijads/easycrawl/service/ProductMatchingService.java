@@ -9,6 +9,8 @@ import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -22,6 +24,8 @@ public class ProductMatchingService {
     private static final int MAX_CANDIDATES_TO_CHECK = 30;
     private static final double SIMILARITY_THRESHOLD = 0.70;
     private static final double MERGE_SIMILARITY_THRESHOLD = 0.85;
+    // Title groups mapped per transaction, also how often pause and cancel are checked in the database
+    private static final int TITLE_GROUPS_PER_CHUNK = 50;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -35,6 +39,14 @@ public class ProductMatchingService {
     private final JobRepository jobRepository;
     private final JobErrorRepository jobErrorRepository;
     private final PriceHistoryRepository priceHistoryRepository;
+    private final PriceRollupService priceRollupService;
+    private final PriceSeriesCache priceSeriesCache;
+    private final JobControlService jobControlService;
+    private final JobProgressRegistry progressRegistry;
+    private final ProductChangeQueue productChangeQueue;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ReferenceDataCache referenceDataCache;
+    private final TransactionTemplate transactionTemplate;
 
     public ProductMatchingService(
             CrawlerRawRepository crawlerRawRepository,
@@ -46,7 +58,15 @@ public class ProductMatchingService {
             UnmappableItemRepository unmappableItemRepository,
             JobRepository jobRepository,
             JobErrorRepository jobErrorRepository,
-            PriceHistoryRepository priceHistoryRepository) {
+            PriceHistoryRepository priceHistoryRepository,
+            PriceRollupService priceRollupService,
+            PriceSeriesCache priceSeriesCache,
+            JobControlService jobControlService,
+            JobProgressRegistry progressRegistry,
+            ProductChangeQueue productChangeQueue,
+            ProductSuggestIndex productSuggestIndex,
+            ReferenceDataCache referenceDataCache,
+            PlatformTransactionManager transactionManager) {
         this.crawlerRawRepository = crawlerRawRepository;
         this.productRepository = productRepository;
         this.productRegistryRepository = productRegistryRepository;
@@ -57,6 +77,14 @@ public class ProductMatchingService {
         this.jobRepository = jobRepository;
         this.jobErrorRepository = jobErrorRepository;
         this.priceHistoryRepository = priceHistoryRepository;
+        this.priceRollupService = priceRollupService;
+        this.priceSeriesCache = priceSeriesCache;
+        this.jobControlService = jobControlService;
+        this.progressRegistry = progressRegistry;
+        this.productChangeQueue = productChangeQueue;
+        this.productSuggestIndex = productSuggestIndex;
+        this.referenceDataCache = referenceDataCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
@@ -111,6 +139,7 @@ public class ProductMatchingService {
         
         logger.info("PROGRESS: [0%] Starting to process {} unique product links from {} total items", 
                 uniqueLinkCount, totalItems);
+        JobProgressRegistry.Progress progress = progressRegistry.start(job.getId(), totalItems);
 
         // Process items grouped by link
         int linksProcessed = 0;
@@ -185,6 +214,7 @@ public class ProductMatchingService {
                 }
 
                 linksProcessed++;
+                progress.update(processed, skipped, newProductsCreated, newVariantsCreated, pricesRecorded);
                 
                 // Calculate progress percentage
                 int progressPercentage = (int)((processed + skipped) * 100.0 / totalItems);
@@ -218,12 +248,10 @@ public class ProductMatchingService {
                             pricesRecorded,
                             remainingTime / 60000);
                     
-                    // Update job description with progress so it's visible in the UI
-                    if (job != null) {
-                        job.setDescription(String.format(
-                            "Processing %d items: %d%% complete | %d processed, %d skipped | %d new products, %d new variants",
-                            totalItems, progressPercentage, processed, skipped, newProductsCreated, newVariantsCreated));
-                        jobRepository.save(job);
+                    // Live progress is served from the registry, the row only gets an occasional copy
+                    if (progress.persistDue()) {
+                        jobRepository.updateProgress(job.getId(), totalItems, processed, skipped,
+                                newProductsCreated, pricesRecorded, LocalDateTime.now());
                     }
                 }
             } catch (Exception e) {
@@ -290,6 +318,8 @@ public class ProductMatchingService {
                         skipped += itemsWithSameTitle.size();
                     }
                     
+                    progress.update(processed, skipped, newProductsCreated, newVariantsCreated, pricesRecorded);
+
                     // Calculate progress percentage
                     int progressPercentage = (int)((processed + skipped) * 100.0 / totalItems);
                     if (progressPercentage != lastProgressUpdate) {
@@ -313,6 +343,8 @@ public class ProductMatchingService {
             }
         }
 
+        progressRegistry.finish(progress);
+
         long totalTime = System.currentTimeMillis() - startTime;
         String finalProgressBar = createProgressBar(100);
         logger.info(
@@ -395,7 +427,7 @@ public class ProductMatchingService {
                 history.setPriceString(rawItem.getPriceString());
                 history.setRecordedAt(recordTime);
                 
-                priceHistoryRepository.save(history);
+                afterPriceRecorded(priceHistoryRepository.save(history));
             }
         } else {
             // Create a new entry for this day
@@ -408,7 +440,7 @@ public class ProductMatchingService {
             history.setPriceString(rawItem.getPriceString());
             history.setRecordedAt(recordTime);
             
-            priceHistoryRepository.save(history);
+            afterPriceRecorded(priceHistoryRepository.save(history));
         }
     }
 
@@ -455,7 +487,7 @@ public class ProductMatchingService {
             if (existingVariantByUrl.isPresent()) {
                 // Update existing variant
                 ProductVariant variant = existingVariantByUrl.get();
-                updateVariantPrice(variant, rawItem, result);
+                updateVariantPrice(variant, rawItem, result, false);
                 return result;
             }
             
@@ -468,8 +500,9 @@ public class ProductMatchingService {
                         Objects.equals(existingVariant.getSize(), storageInfo) && 
                         Objects.equals(existingVariant.getProperty1(), property1)) {
                     
+                    boolean urlChanged = !Objects.equals(existingVariant.getSourceUrl(), sourceUrl);
                     existingVariant.setSourceUrl(sourceUrl); // Update URL
-                    updateVariantPrice(existingVariant, rawItem, result);
+                    updateVariantPrice(existingVariant, rawItem, result, urlChanged);
                     return result;
                 }
             }
@@ -494,7 +527,7 @@ public class ProductMatchingService {
             result.newVariantCreated = true;
             
             // Always record price history for new variants
-            recordPriceHistory(savedVariant, rawItem);
+            recordPriceHistory(savedVariant, rawItem, true);
             result.priceRecorded = true;
             
             return result;
@@ -506,13 +539,17 @@ public class ProductMatchingService {
     
     /**
      * Update variant price and record price history
+     *
+     * @param variantChanged whether the caller already changed other data of the variant
      */
-    private void updateVariantPrice(ProductVariant variant, CrawlerRaw rawItem, PriceProcessingResult result) {
+    private void updateVariantPrice(
+            ProductVariant variant, CrawlerRaw rawItem, PriceProcessingResult result, boolean variantChanged) {
         // Check if there's any change in price data
         boolean priceChanged = !Objects.equals(variant.getPrice(), rawItem.getPrice()) || 
                             !Objects.equals(variant.getOldPrice(), rawItem.getOldPrice()) ||
                             !Objects.equals(variant.getDiscount(), rawItem.getDiscount()) ||
                             !Objects.equals(variant.getPriceString(), rawItem.getPriceString());
+        boolean stockChanged = !Boolean.TRUE.equals(variant.getInStock());
                             
         // Update price data
         variant.setPrice(rawItem.getPrice());
@@ -526,7 +563,7 @@ public class ProductMatchingService {
         result.variantUpdated = true;
         
         // Always record price history
-        recordPriceHistory(savedVariant, rawItem);
+        recordPriceHistory(savedVariant, rawItem, variantChanged || priceChanged || stockChanged);
         result.priceRecorded = true;
     }
     
@@ -535,7 +572,7 @@ public class ProductMatchingService {
      * Overloaded method for backward compatibility
      */
     private void updateVariantPrice(ProductVariant variant, CrawlerRaw rawItem) {
-        updateVariantPrice(variant, rawItem, new PriceProcessingResult());
+        updateVariantPrice(variant, rawItem, new PriceProcessingResult(), false);
     }
 
     /**
@@ -545,239 +582,234 @@ public class ProductMatchingService {
      * @param job The job object for tracking progress and results
      * @return The number of newly mapped products
      */
-    @Transactional
     public int processAllUnmappedItems(Job job) {
-        StringBuilder resultDescription = new StringBuilder();
-        resultDescription.append("Processing all unmapped items\n\n");
-
         // Get all unprocessed items without grouping
         List<CrawlerRaw> unprocessedItems = crawlerRawRepository.findByProcessedNullOrProcessedFalse();
+        return processTitleGroups(unprocessedItems, "all categories", job, true);
+    }
 
-        resultDescription.append("Found ").append(unprocessedItems.size())
-                .append(" unprocessed items\n\n");
+    /**
+     * Process items for a specific category with detailed results tracking
+     * Used by the job processor service
+     *
+     * @param category The product category code to process
+     * @param job The job object for tracking progress and results
+     * @return The number of newly mapped products
+     */
+    public int processItemsByCategory(String category, Job job) {
+        if (category == null || category.isEmpty()) {
+            throw new IllegalArgumentException("Category cannot be null or empty");
+        }
 
-        logger.info("Found {} unprocessed raw products", unprocessedItems.size());
+        // Get all unprocessed items for category without grouping
+        List<CrawlerRaw> unprocessedItems = crawlerRawRepository.findByProcessedNullOrFalseAndConfigCodeContaining(category);
+        return processTitleGroups(unprocessedItems, "category " + category, job, false);
+    }
 
+    /**
+     * Process only the unprocessed raw items produced by one crawl job. Used by mapping jobs
+     * chained onto a finished crawl, so the work is proportional to that crawl's output.
+     *
+     * @param crawlJobId The id of the CRAWL job whose items should be mapped
+     * @param job The mapping job for tracking progress and results
+     * @return The number of newly mapped products
+     */
+    public int processItemsForCrawlJob(Integer crawlJobId, Job job) {
+        List<CrawlerRaw> unprocessedItems = crawlerRawRepository.findUnprocessedByJobId(crawlJobId);
+        return processTitleGroups(unprocessedItems, "crawl job " + crawlJobId, job, true);
+    }
+
+    /**
+     * Process the unprocessed raw items of exactly one crawler config. Used by the child jobs of
+     * a sharded mapping run.
+     *
+     * @param configCode The crawler config code whose items should be mapped
+     * @param job The child job for tracking progress and results
+     * @return The number of newly mapped products
+     */
+    public int processItemsForConfig(String configCode, Job job) {
+        List<CrawlerRaw> unprocessedItems = crawlerRawRepository.findUnprocessedByConfigCode(configCode);
+        return processTitleGroups(unprocessedItems, "config " + configCode, job, true);
+    }
+
+    /**
+     * Counters of one mapping run, shared by its chunks
+     */
+    private static class MappingRunStats {
         int processed = 0;
         int skipped = 0;
-        Map<String, Integer> categoryStats = new HashMap<>();
-        Map<String, Integer> brandCounts = new HashMap<>();
-        List<String> newProductNames = new ArrayList<>();
-        
-        // Group items by title for efficient processing
-        Map<String, List<CrawlerRaw>> itemsByTitle = unprocessedItems.stream()
-                .collect(Collectors.groupingBy(CrawlerRaw::getTitle));
-        
-        logger.info("Grouped {} raw items into {} unique titles for efficient processing", 
-                unprocessedItems.size(), itemsByTitle.size());
-
-        // Process by title groups
-        for (Map.Entry<String, List<CrawlerRaw>> entry : itemsByTitle.entrySet()) {
-            String title = entry.getKey();
-            List<CrawlerRaw> itemsWithSameTitle = entry.getValue();
-            
-            try {
-                // Extract category for statistics from first item
-                String category = extractCategory(itemsWithSameTitle.get(0).getConfigCode());
-                categoryStats.put(category, categoryStats.getOrDefault(category, 0) + itemsWithSameTitle.size());
+        int pricesRecorded = 0;
+        int newProducts = 0;
+        int newVariants = 0;
+        final Map<String, Integer> categoryStats = new HashMap<>();
+        final Map<String, Integer> brandCounts = new HashMap<>();
+        final Set<String> newProductNames = new LinkedHashSet<>();
+
+        MappingRunStats copy() {
+            MappingRunStats copy = new MappingRunStats();
+            copy.restore(this);
+            return copy;
+        }
 
-                // Process the first item to establish product mapping
-                CrawlerRaw firstItem = itemsWithSameTitle.get(0);
-                boolean mapped = processRawProduct(firstItem);
-                
-                if (mapped && firstItem.getMatchedProductId() != null) {
-                    // Record the product for statistics (using first item)
-                    Optional<Product> product = productRepository.findById(firstItem.getMatchedProductId());
-                    if (product.isPresent()) {
-                        String productName = product.get().getName();
-                        if (product.get().getBrand() != null) {
-                            brandCounts.put(product.get().getBrand(),
-                                    brandCounts.getOrDefault(product.get().getBrand(), 0) + 1);
-                        }
+        /**
+         * Reset to an earlier copy, e.g. when the chunk counted since then was rolled back
+         */
+        void restore(MappingRunStats from) {
+            processed = from.processed;
+            skipped = from.skipped;
+            pricesRecorded = from.pricesRecorded;
+            newProducts = from.newProducts;
+            newVariants = from.newVariants;
+            categoryStats.clear();
+            categoryStats.putAll(from.categoryStats);
+            brandCounts.clear();
+            brandCounts.putAll(from.brandCounts);
+            newProductNames.clear();
+            newProductNames.addAll(from.newProductNames);
+        }
+    }
 
-                        // Only add to the list for display if it's a new product
-                        if (!newProductNames.contains(productName)) {
-                            newProductNames.add(productName);
-                        }
-                    }
-                    
-                    // Process all other items with same title for their price data
-                    for (int i = 1; i < itemsWithSameTitle.size(); i++) {
-                        CrawlerRaw otherItem = itemsWithSameTitle.get(i);
-                        // Mark as processed and map to same product
-                        otherItem.setProcessed(true);
-                        otherItem.setMatchedProductId(firstItem.getMatchedProductId());
-                        crawlerRawRepository.save(otherItem);
-                        
-                        // Process the item for its price
-                        processItemForPrice(otherItem, firstItem.getMatchedProductId());
-                    }
-                    
-                    processed += itemsWithSameTitle.size();
-                } else {
-                    // First item wasn't mappable, so skip all with same title
-                    skipped += itemsWithSameTitle.size();
-                    
-                    // Track the unmappable item
-                    trackUnmappableItem(
-                            firstItem,
-                            UnmappableItem.ReasonCode.OTHER,
-                            "Could not map item to product");
-                }
+    /**
+     * Map a set of raw items grouped by title: the first item of each group establishes the
+     * product mapping and the rest only contribute their prices.
+     *
+     * <p>Groups are processed in chunks that each commit on their own. Items marked processed
+     * are the checkpoint, so a paused, cancelled or interrupted run keeps everything up to its
+     * last chunk and the next run only sees what is left. Pause and cancel requests are checked
+     * in memory before every group and in the database after every chunk.
+     */
+    private int processTitleGroups(List<CrawlerRaw> unprocessedItems, String scope, Job job, boolean trackUnmappable) {
+        StringBuilder resultDescription = new StringBuilder();
+        resultDescription.append("Processing items for ").append(scope).append("\n\n");
 
-                // Update job description periodically for progress tracking
-                if ((processed + skipped) % 100 == 0) {
-                    StringBuilder progressUpdate = new StringBuilder(resultDescription);
-                    progressUpdate.append("Progress: Processed ").append(processed + skipped)
-                            .append(" of ").append(unprocessedItems.size())
-                            .append(" (").append(processed).append(" mapped, ")
-                            .append(skipped).append(" skipped)\n");
+        resultDescription.append("Found ").append(unprocessedItems.size())
+                .append(" unprocessed items\n\n");
 
-                    job.setDescription(progressUpdate.toString());
-                    jobRepository.save(job);
-                }
-            } catch (Exception e) {
-                logger.error(
-                        "Error processing raw products with title {}: {}",
-                        title,
-                        e.getMessage(),
-                        e);
+        logger.info(
+                "Found {} unprocessed raw products for {}",
+                unprocessedItems.size(),
+                scope);
 
-                // Track the error for the first item in the group
-                CrawlerRaw firstItem = itemsWithSameTitle.get(0);
-                trackUnmappableItem(
-                        firstItem,
-                        UnmappableItem.ReasonCode.OTHER,
-                        "Error processing: " + e.getMessage());
+        // Group item ids by title, the items themselves are reloaded inside each chunk's transaction
+        Map<String, List<Integer>> idsByTitle = unprocessedItems.stream()
+                .collect(Collectors.groupingBy(
+                        CrawlerRaw::getTitle,
+                        LinkedHashMap::new,
+                        Collectors.mapping(CrawlerRaw::getId, Collectors.toList())));
 
-                skipped += itemsWithSameTitle.size();
-            }
-        }
+        logger.info("Grouped {} raw items into {} unique titles for efficient processing",
+                unprocessedItems.size(), idsByTitle.size());
 
-        // Build final results summary (same as before)
-        resultDescription.append("== RESULTS SUMMARY ==\n");
-        resultDescription.append("Total processed: ").append(processed + skipped).append("\n");
-        resultDescription.append("Successfully mapped: ").append(processed).append("\n");
-        resultDescription.append("Skipped/unmappable: ").append(skipped).append("\n\n");
+        MappingRunStats stats = new MappingRunStats();
+        List<List<Integer>> groups = new ArrayList<>(idsByTitle.values());
+        String stopStatus = null;
+        JobProgressRegistry.Progress progress = progressRegistry.start(job.getId(), unprocessedItems.size());
 
-        // Add category statistics
-        if (!categoryStats.isEmpty()) {
-            resultDescription.append("== CATEGORY STATISTICS ==\n");
-            categoryStats.entrySet().stream()
-                    .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                    .forEach(entry ->
-                            resultDescription.append(entry.getKey()).append(": ")
-                                    .append(entry.getValue()).append("\n"));
-            resultDescription.append("\n");
-        }
+        try {
+            for (int start = 0; start < groups.size() && stopStatus == null; start += TITLE_GROUPS_PER_CHUNK) {
+                List<List<Integer>> chunk = groups.subList(start, Math.min(start + TITLE_GROUPS_PER_CHUNK, groups.size()));
+                MappingRunStats beforeChunk = stats.copy();
+                try {
+                    stopStatus = transactionTemplate.execute(
+                            status -> processTitleGroupChunk(chunk, job, stats, progress, trackUnmappable));
+                } catch (Exception e) {
+                    // The chunk was rolled back, its items stay unprocessed for the next run
+                    logger.error("Error committing mapping chunk for {}: {}", scope, e.getMessage(), e);
+                    stats.restore(beforeChunk);
+                    progress.update(stats.processed, stats.skipped, stats.newProducts, stats.newVariants,
+                            stats.pricesRecorded);
+                }
 
-        // Add brand statistics
-        if (!brandCounts.isEmpty()) {
-            resultDescription.append("== BRANDS SUMMARY ==\n");
-            brandCounts.entrySet().stream()
-                    .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                    .limit(20) // Limit to top 20 brands
-                    .forEach(entry ->
-                            resultDescription.append(entry.getKey()).append(": ")
-                                    .append(entry.getValue()).append("\n"));
+                if (stopStatus == null) {
+                    stopStatus = jobControlService.stopStatus(job.getId(), true);
+                }
 
-            if (brandCounts.size() > 20) {
-                resultDescription.append("... and ").append(brandCounts.size() - 20)
-                        .append(" more brands\n");
+                // Live progress is served from the registry, the row only gets an occasional copy
+                if (progress.persistDue()) {
+                    jobRepository.updateProgress(job.getId(), unprocessedItems.size(), stats.processed,
+                            stats.skipped, stats.newProducts, stats.pricesRecorded, LocalDateTime.now());
+                }
             }
-            resultDescription.append("\n");
+        } finally {
+            progressRegistry.finish(progress);
         }
 
-        // Add list of new products (limited to avoid huge descriptions)
-        if (!newProductNames.isEmpty()) {
-            resultDescription.append("== NEW PRODUCTS (sample) ==\n");
-            newProductNames.stream().limit(50).forEach(name ->
-                    resultDescription.append("- ").append(name).append("\n"));
-
-            if (newProductNames.size() > 50) {
-                resultDescription.append("... and ").append(newProductNames.size() - 50)
-                        .append(" more products\n");
-            }
+        if (stopStatus != null) {
+            resultDescription.append("Stopped early: ").append(stopStatus).append("\n\n");
         }
+        appendResultsSummary(resultDescription, stats);
 
         logger.info(
-                "Completed processing all raw products: {} mapped, {} skipped",
-                processed,
-                skipped);
+                "Completed processing {} raw products for {} ({} skipped)",
+                stats.processed,
+                scope,
+                stats.skipped);
 
-        // Save the final description to the job
-        job.setDescription(resultDescription.toString());
-        jobRepository.save(job);
+        // Save the final counters, the description goes with the outcome of the run
+        jobRepository.updateProgress(job.getId(), unprocessedItems.size(), stats.processed, stats.skipped,
+                stats.newProducts, stats.pricesRecorded, LocalDateTime.now());
 
-        return processed;
+        if (stopStatus != null) {
+            throw new JobStoppedException(stopStatus, resultDescription.toString());
+        }
+        return stats.processed;
     }
 
     /**
-     * Process items for a specific category with detailed results tracking
-     * Used by the job processor service
+     * Process one chunk of title groups inside the caller's transaction
      *
-     * @param category The product category code to process
-     * @param job The job object for tracking progress and results
-     * @return The number of newly mapped products
+     * @return the status to stop with when a pause or cancel was requested, otherwise null
      */
-    @Transactional
-    public int processItemsByCategory(String category, Job job) {
-        if (category == null || category.isEmpty()) {
-            throw new IllegalArgumentException("Category cannot be null or empty");
-        }
-
-        StringBuilder resultDescription = new StringBuilder();
-        resultDescription.append("Processing items for category: ").append(category).append("\n\n");
-
-        // Get all unprocessed items for category without grouping
-        List<CrawlerRaw> unprocessedItems = crawlerRawRepository.findByProcessedNullOrFalseAndConfigCodeContaining(category);
-
-        resultDescription.append("Found ").append(unprocessedItems.size())
-                .append(" unprocessed items\n\n");
-
-        logger.info(
-                "Found {} unprocessed raw products for category {}",
-                unprocessedItems.size(),
-                category);
+    private String processTitleGroupChunk(
+            List<List<Integer>> chunk,
+            Job job,
+            MappingRunStats stats,
+            JobProgressRegistry.Progress progress,
+            boolean trackUnmappable) {
+        List<Integer> chunkIds = chunk.stream().flatMap(List::stream).toList();
+        Map<Integer, CrawlerRaw> itemsById = new HashMap<>();
+        crawlerRawRepository.findAllById(chunkIds).forEach(item -> itemsById.put(item.getId(), item));
+
+        for (List<Integer> ids : chunk) {
+            String stopStatus = jobControlService.stopStatus(job.getId(), false);
+            if (stopStatus != null) {
+                return stopStatus;
+            }
 
-        int processed = 0;
-        int skipped = 0;
-        List<String> newProductNames = new ArrayList<>();
-        Map<String, Integer> brandCounts = new HashMap<>();
-        
-        // Group items by title for efficient processing
-        Map<String, List<CrawlerRaw>> itemsByTitle = unprocessedItems.stream()
-                .collect(Collectors.groupingBy(CrawlerRaw::getTitle));
-        
-        logger.info("Grouped {} raw items into {} unique titles for efficient processing", 
-                unprocessedItems.size(), itemsByTitle.size());
+            // Another run may have processed some of them since they were listed
+            List<CrawlerRaw> itemsWithSameTitle = ids.stream()
+                    .map(itemsById::get)
+                    .filter(item -> item != null && !Boolean.TRUE.equals(item.getProcessed()))
+                    .toList();
+            if (itemsWithSameTitle.isEmpty()) {
+                continue;
+            }
 
-        // Process by title groups
-        for (Map.Entry<String, List<CrawlerRaw>> entry : itemsByTitle.entrySet()) {
-            String title = entry.getKey();
-            List<CrawlerRaw> itemsWithSameTitle = entry.getValue();
-            
+            CrawlerRaw firstItem = itemsWithSameTitle.get(0);
             try {
+                // Extract category for statistics from first item
+                String category = extractCategory(firstItem.getConfigCode());
+                stats.categoryStats.merge(category, itemsWithSameTitle.size(), Integer::sum);
+
                 // Process the first item to establish product mapping
-                CrawlerRaw firstItem = itemsWithSameTitle.get(0);
                 boolean mapped = processRawProduct(firstItem);
-                
+
                 if (mapped && firstItem.getMatchedProductId() != null) {
+                    // Check if this is a newly created product
+                    if (!productRepository.existsByIdAndCreatedBefore(
+                            firstItem.getMatchedProductId(), LocalDateTime.now().minusMinutes(5))) {
+                        stats.newProducts++;
+                    }
+
                     // Track the product for reporting
                     Optional<Product> product = productRepository.findById(firstItem.getMatchedProductId());
                     if (product.isPresent()) {
-                        String productName = product.get().getName();
                         if (product.get().getBrand() != null) {
-                            brandCounts.put(product.get().getBrand(),
-                                    brandCounts.getOrDefault(product.get().getBrand(), 0) + 1);
-                        }
-
-                        // Only add to the list for display if it's a new product
-                        if (!newProductNames.contains(productName)) {
-                            newProductNames.add(productName);
+                            stats.brandCounts.merge(product.get().getBrand(), 1, Integer::sum);
                         }
+                        stats.newProductNames.add(product.get().getName());
                     }
-                    
+
                     // Process all other items with same title for their price data
                     for (int i = 1; i < itemsWithSameTitle.size(); i++) {
                         CrawlerRaw otherItem = itemsWithSameTitle.get(i);
@@ -785,79 +817,97 @@ public class ProductMatchingService {
                         otherItem.setProcessed(true);
                         otherItem.setMatchedProductId(firstItem.getMatchedProductId());
                         crawlerRawRepository.save(otherItem);
-                        
+
                         // Process the item for its price
-                        processItemForPrice(otherItem, firstItem.getMatchedProductId());
+                        PriceProcessingResult result = processItemForPrice(otherItem, firstItem.getMatchedProductId());
+                        if (result.priceRecorded) stats.pricesRecorded++;
+                        if (result.newVariantCreated) stats.newVariants++;
                     }
-                    
-                    processed += itemsWithSameTitle.size();
+
+                    stats.processed += itemsWithSameTitle.size();
+                    // The first item's price is recorded while it is mapped
+                    stats.pricesRecorded++;
                 } else {
                     // First item wasn't mappable, so skip all with same title
-                    skipped += itemsWithSameTitle.size();
-                }
+                    stats.skipped += itemsWithSameTitle.size();
 
-                // Update job description periodically for progress tracking
-                if ((processed + skipped) % 50 == 0) {
-                    StringBuilder progressUpdate = new StringBuilder(resultDescription);
-                    progressUpdate.append("Progress: Processed ").append(processed + skipped)
-                            .append(" of ").append(unprocessedItems.size())
-                            .append(" (").append(processed).append(" mapped, ")
-                            .append(skipped).append(" skipped)\n");
-
-                    job.setDescription(progressUpdate.toString());
-                    jobRepository.save(job);
+                    if (trackUnmappable) {
+                        trackUnmappableItem(
+                                firstItem,
+                                UnmappableItem.ReasonCode.OTHER,
+                                "Could not map item to product");
+                    }
                 }
             } catch (Exception e) {
                 logger.error(
                         "Error processing raw products with title {}: {}",
-                        title,
+                        firstItem.getTitle(),
                         e.getMessage(),
                         e);
 
-                skipped += itemsWithSameTitle.size();
+                if (trackUnmappable) {
+                    trackUnmappableItem(
+                            firstItem,
+                            UnmappableItem.ReasonCode.OTHER,
+                            "Error processing: " + e.getMessage());
+                }
+
+                stats.skipped += itemsWithSameTitle.size();
             }
+
+            progress.update(stats.processed, stats.skipped, stats.newProducts, stats.newVariants, stats.pricesRecorded);
         }
+        return null;
+    }
 
-        // Build final results summary (same as before)
+    /**
+     * Append the results, category, brand and product summaries of a mapping run
+     */
+    private void appendResultsSummary(StringBuilder resultDescription, MappingRunStats stats) {
         resultDescription.append("== RESULTS SUMMARY ==\n");
-        resultDescription.append("Total processed: ").append(processed + skipped).append("\n");
-        resultDescription.append("Successfully mapped: ").append(processed).append("\n");
-        resultDescription.append("Skipped/unmappable: ").append(skipped).append("\n\n");
+        resultDescription.append("Total processed: ").append(stats.processed + stats.skipped).append("\n");
+        resultDescription.append("Successfully mapped: ").append(stats.processed).append("\n");
+        resultDescription.append("Skipped/unmappable: ").append(stats.skipped).append("\n\n");
+
+        // Add category statistics when the run spanned more than one category
+        if (stats.categoryStats.size() > 1) {
+            resultDescription.append("== CATEGORY STATISTICS ==\n");
+            stats.categoryStats.entrySet().stream()
+                    .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
+                    .forEach(entry ->
+                            resultDescription.append(entry.getKey()).append(": ")
+                                    .append(entry.getValue()).append("\n"));
+            resultDescription.append("\n");
+        }
 
-        // Add information about brands
-        if (!brandCounts.isEmpty()) {
+        // Add brand statistics
+        if (!stats.brandCounts.isEmpty()) {
             resultDescription.append("== BRANDS SUMMARY ==\n");
-            brandCounts.entrySet().stream()
+            stats.brandCounts.entrySet().stream()
                     .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
+                    .limit(20) // Limit to top 20 brands
                     .forEach(entry ->
                             resultDescription.append(entry.getKey()).append(": ")
                                     .append(entry.getValue()).append("\n"));
+
+            if (stats.brandCounts.size() > 20) {
+                resultDescription.append("... and ").append(stats.brandCounts.size() - 20)
+                        .append(" more brands\n");
+            }
             resultDescription.append("\n");
         }
 
         // Add list of new products (limited to 100 to avoid huge descriptions)
-        if (!newProductNames.isEmpty()) {
+        if (!stats.newProductNames.isEmpty()) {
             resultDescription.append("== NEW PRODUCTS ==\n");
-            newProductNames.stream().limit(100).forEach(name ->
+            stats.newProductNames.stream().limit(100).forEach(name ->
                     resultDescription.append("- ").append(name).append("\n"));
 
-            if (newProductNames.size() > 100) {
-                resultDescription.append("... and ").append(newProductNames.size() - 100)
+            if (stats.newProductNames.size() > 100) {
+                resultDescription.append("... and ").append(stats.newProductNames.size() - 100)
                         .append(" more products\n");
             }
         }
-
-        logger.info(
-                "Completed processing {} raw products for category {} ({} skipped)",
-                processed,
-                category,
-                skipped);
-
-        // Save the final description to the job
-        job.setDescription(resultDescription.toString());
-        jobRepository.save(job);
-
-        return processed;
     }
 
     /**
@@ -926,9 +976,8 @@ public class ProductMatchingService {
         String searchTerm = getKeySearchTerm(cleanedTitle);
         if (searchTerm != null && searchTerm.length() >= 3) {
             // Search for products with this key term
-            List<Product> exactMatches = productRepository.searchProducts(searchTerm);
+            List<Product> exactMatches = productRepository.searchProducts(searchTerm, MAX_SIMILAR_ITEMS_TO_CHECK);
             exactMatches = exactMatches.stream()
-                    .limit(MAX_SIMILAR_ITEMS_TO_CHECK)
                     .filter(p -> p.getBrand() != null && !p.getBrand().isEmpty())
                     .collect(Collectors.toList());
 
@@ -1245,9 +1294,7 @@ public class ProductMatchingService {
         // If we still have very few, try a broader search using model
         if (candidates.size() < 5 && model != null && !model.isEmpty()) {
             candidates.addAll(
-                    productRepository.searchProducts(model).stream()
-                            .limit(MAX_CANDIDATES_TO_CHECK)
-                            .collect(Collectors.toList()));
+                    productRepository.searchProducts(model, MAX_CANDIDATES_TO_CHECK));
         }
 
         return candidates;
@@ -1279,7 +1326,12 @@ public class ProductMatchingService {
         Optional<ProductCategory> categoryOpt = productCategoryRepository.findById(categoryCode);
         categoryOpt.ifPresent(product::setCategory);
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        if (brand != null) {
+            // The brand may be new, the cached brand list is rebuilt after commit
+            referenceDataCache.evictBrands();
+        }
+        return saved;
     }
 
     /**
@@ -1313,6 +1365,7 @@ public class ProductMatchingService {
                 logger.debug("Price changed for variant {}: {} -> {}", 
                         variant.getId(), variant.getPrice(), rawItem.getPrice());
             }
+            boolean stockChanged = !Boolean.TRUE.equals(variant.getInStock());
             
             // Always update the variant with the latest data
             variant.setPrice(rawItem.getPrice());
@@ -1325,7 +1378,7 @@ public class ProductMatchingService {
             
             // Always record price history for each crawler run
             // The recordPriceHistory method will handle updates for the same day
-            recordPriceHistory(savedVariant, rawItem);
+            recordPriceHistory(savedVariant, rawItem, priceChanged || stockChanged);
             
             logger.debug("Updated existing variant {} from {} with price {}",
                     variant.getId(), website.getName(), rawItem.getPrice());
@@ -1354,6 +1407,10 @@ public class ProductMatchingService {
                     logger.debug("Price changed for variant {}: {} -> {}", 
                             existingVariant.getId(), existingVariant.getPrice(), rawItem.getPrice());
                 }
+                boolean variantChanged = priceChanged
+                        || !Boolean.TRUE.equals(existingVariant.getInStock())
+                        || !Objects.equals(existingVariant.getSourceUrl(), sourceUrl)
+                        || !Objects.equals(existingVariant.getTitle(), rawItem.getTitle());
                 
                 // Always update the variant with the latest data
                 existingVariant.setSourceUrl(sourceUrl); // Update with new URL
@@ -1369,7 +1426,7 @@ public class ProductMatchingService {
                 
                 // Always record price history for each crawler run
                 // The recordPriceHistory method will handle updates for the same day
-                recordPriceHistory(savedVariant, rawItem);
+                recordPriceHistory(savedVariant, rawItem, variantChanged);
                 
                 logger.debug("Updated matching variant {} from {} with new URL and price {}",
                         existingVariant.getId(), website.getName(), rawItem.getPrice());
@@ -1403,7 +1460,7 @@ public class ProductMatchingService {
         ProductVariant savedVariant = productVariantRepository.save(variant);
         
         // Always record price history for new variants
-        recordPriceHistory(savedVariant, rawItem);
+        recordPriceHistory(savedVariant, rawItem, true);
         
         logger.debug("Created new variant {} for product {} from {} with price {}",
                 savedVariant.getId(), product.getId(), website.getName(), rawItem.getPrice());
@@ -1413,8 +1470,10 @@ public class ProductMatchingService {
      * Record price history for a variant
      * Creates one entry per day per variant, while preserving historical data
      * Uses the crawler raw item's actual creation timestamp
+     *
+     * @param variantChanged whether the variant's price, stock or other shown data was just changed
      */
-    private void recordPriceHistory(ProductVariant variant, CrawlerRaw rawItem) {
+    private void recordPriceHistory(ProductVariant variant, CrawlerRaw rawItem, boolean variantChanged) {
         // Use the crawl timestamp from the raw item
         LocalDateTime recordTime = rawItem.getCreated();
         if (recordTime == null) {
@@ -1429,6 +1488,7 @@ public class ProductMatchingService {
                 .findByVariantAndRecordedAtBetweenOrderByRecordedAtDesc(
                         variant, startOfDay, endOfDay);
         
+        boolean historyChanged = true;
         if (!sameDeysEntries.isEmpty()) {
             // Update the existing entry for that day
             PriceHistory existingEntry = sameDeysEntries.get(0);
@@ -1448,7 +1508,10 @@ public class ProductMatchingService {
                 // Update to the original crawl time
                 existingEntry.setRecordedAt(recordTime);
                 
-                priceHistoryRepository.save(existingEntry);
+                // Flushed so the rollup buckets can be recomputed from the table
+                afterPriceReplaced(priceHistoryRepository.saveAndFlush(existingEntry));
+            } else {
+                historyChanged = false;
             }
         } else {
             // Create a new entry for this day
@@ -1461,8 +1524,32 @@ public class ProductMatchingService {
             history.setPriceString(variant.getPriceString());
             history.setRecordedAt(recordTime);
             
-            priceHistoryRepository.save(history);
+            afterPriceRecorded(priceHistoryRepository.save(history));
         }
+
+        // Keep the product's aggregates and index entries in step. A re-crawl that changed nothing
+        // skips this, the refresh bumps the product's data version and locks its row.
+        if (variant.getProduct() != null && (variantChanged || historyChanged)) {
+            productRepository.refreshAggregates(variant.getProduct().getId());
+            productChangeQueue.markChanged(variant.getProduct().getId());
+        }
+    }
+
+    /**
+     * Propagate a written price history entry to the derived price data
+     */
+    private void afterPriceRecorded(PriceHistory history) {
+        priceRollupService.recordSample(history);
+        priceSeriesCache.record(history);
+    }
+
+    /**
+     * Propagate a price history entry that was rewritten in place, its old price is already
+     * part of the rollups
+     */
+    private void afterPriceReplaced(PriceHistory history) {
+        priceRollupService.recomputeSample(history);
+        priceSeriesCache.record(history);
     }
 
     /**
@@ -1770,6 +1857,7 @@ public class ProductMatchingService {
         // Refresh the registry cache if any brands were added
         if (added > 0) {
             textProcessor.refreshRegistry();
+            productSuggestIndex.markRegistryChanged();
         }
 
         return added;
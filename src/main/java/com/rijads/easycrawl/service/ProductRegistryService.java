@@ -1,5 +1,6 @@
 package com.rijads.easycrawl.service;
 
+import com.rijads.easycrawl.dto.CursorPageDTO;
 import com.rijads.easycrawl.model.CrawlerRaw;
 import com.rijads.easycrawl.model.ProductRegistry;
 import com.rijads.easycrawl.model.Product;
@@ -7,46 +8,84 @@ import com.rijads.easycrawl.repository.ProductRegistryRepository;
 import com.rijads.easycrawl.repository.ProductRepository;
 import com.rijads.easycrawl.repository.ProductVariantRepository;
 import com.rijads.easycrawl.repository.CrawlerRawRepository;
+import com.rijads.easycrawl.specification.KeysetPagination;
 import com.rijads.easycrawl.utility.ProductTextProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.StreamSupport;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Function;
 
 @Service
 public class ProductRegistryService {
     private static final Logger logger = LoggerFactory.getLogger(ProductRegistryService.class);
+    private static final Set<String> CURSOR_SORTS = Set.of("registryKey", "created");
     
     private final ProductRegistryRepository registryRepository;
     private final ProductTextProcessor textProcessor;
     private final ProductRepository productRepository;
     private final ProductVariantRepository productVariantRepository;
     private final CrawlerRawRepository crawlerRawRepository;
+    private final PriceSeriesCache priceSeriesCache;
+    private final PriceRollupService priceRollupService;
+    private final ReferenceDataCache referenceDataCache;
+    private final EntityStreamWriter streamWriter;
+    private final ProductSuggestIndex suggestIndex;
+    private final ProductChangeQueue productChangeQueue;
 
     public ProductRegistryService(
             ProductRegistryRepository registryRepository,
             ProductTextProcessor textProcessor,
             ProductRepository productRepository,
             ProductVariantRepository productVariantRepository,
-            CrawlerRawRepository crawlerRawRepository) {
+            CrawlerRawRepository crawlerRawRepository,
+            PriceSeriesCache priceSeriesCache,
+            PriceRollupService priceRollupService,
+            ReferenceDataCache referenceDataCache,
+            EntityStreamWriter streamWriter,
+            ProductSuggestIndex suggestIndex,
+            ProductChangeQueue productChangeQueue) {
         this.registryRepository = registryRepository;
         this.textProcessor = textProcessor;
         this.productRepository = productRepository;
         this.productVariantRepository = productVariantRepository;
         this.crawlerRawRepository = crawlerRawRepository;
+        this.priceSeriesCache = priceSeriesCache;
+        this.priceRollupService = priceRollupService;
+        this.referenceDataCache = referenceDataCache;
+        this.streamWriter = streamWriter;
+        this.suggestIndex = suggestIndex;
+        this.productChangeQueue = productChangeQueue;
     }
     public Page<ProductRegistry> getAll(String type, String search, Pageable page) {
+        return registryRepository.findAll(filter(type, search), page);
+    }
+
+    /**
+     * Same filters as {@link #getAll}, paged with a cursor instead of an offset
+     */
+    public CursorPageDTO<ProductRegistry> getSlice(
+            String type, String search, String cursor, String sort, Sort.Direction direction, Integer size) {
+        return KeysetPagination.fetch(
+                registryRepository, filter(type, search), cursor, sort, direction, size,
+                CURSOR_SORTS, Function.identity());
+    }
+
+    private static Specification<ProductRegistry> filter(String type, String search) {
         Specification<ProductRegistry> spec = Specification.where(null);
         if (type != null && !type.isEmpty()) {
             spec = spec.and((root,query,criteriaBuilder) ->
@@ -56,12 +95,13 @@ public class ProductRegistryService {
             spec = spec.and((root, query, criteriaBuilder) ->
                     criteriaBuilder.like(criteriaBuilder.lower(root.get("registryKey")), "%" + search.toLowerCase() + "%"));
         }
-        return registryRepository.findAll(spec,page);
+        return spec;
     }
 
     public ProductRegistry create(String username, ProductRegistry registry) {
         ProductRegistry entity = registryRepository.save(registry);
         textProcessor.refreshRegistry();
+        suggestIndex.markRegistryChanged();
         return entity;
     }
 
@@ -94,6 +134,7 @@ public class ProductRegistryService {
             ProductRegistry res = registryRepository.save(existing);
             // Refresh the text processor cache
             textProcessor.refreshRegistry();
+            suggestIndex.markRegistryChanged();
             return res;
         }
         return null;
@@ -113,22 +154,33 @@ public class ProductRegistryService {
             
             registryRepository.deleteById(id);
             textProcessor.refreshRegistry();
+            suggestIndex.markRegistryChanged();
         }
     }
 
     public void refreshCache() {
         textProcessor.refreshRegistry();
+        suggestIndex.markRegistryChanged();
     }
 
     public void bulkImport(List<ProductRegistry> registries) {
         registryRepository.saveAll(registries);
         // Refresh the text processor cache
         textProcessor.refreshRegistry();
+        suggestIndex.markRegistryChanged();
     }
 
     public List<ProductRegistry> bulkExport() {
         return (List<ProductRegistry>) registryRepository.findAll();
     }
+
+    /**
+     * Write all registry entries as NDJSON while they are read
+     */
+    @Transactional(readOnly = true)
+    public long streamExport(OutputStream out) throws IOException {
+        return streamWriter.write(registryRepository.streamAll(), Function.identity(), out);
+    }
     
     /**
      * Batch change registry type for multiple entries
@@ -179,6 +231,7 @@ public class ProductRegistryService {
             registryRepository.saveAll(registries);
             // Refresh the text processor cache since registry types have changed
             textProcessor.refreshRegistry();
+            suggestIndex.markRegistryChanged();
         }
         
         return updatedCount;
@@ -233,12 +286,21 @@ public class ProductRegistryService {
         }
         
         // 5. Delete all product variants (must be done before deleting products)
+        List<Integer> variantIds = new ArrayList<>();
         for (Product product : productsToRemove) {
+            productVariantRepository.findByProductId(product.getId()).forEach(variant -> {
+                variantIds.add(variant.getId());
+                priceSeriesCache.evict(variant.getId());
+            });
             productVariantRepository.deleteByProduct(product);
         }
+        priceRollupService.deleteRollups(productIds, variantIds);
         
         // 6. Finally, delete all products with this brand
         productRepository.deleteAll(productsToRemove);
+        referenceDataCache.evictBrands();
+        // Once committed, the indexes find the products gone and drop them
+        productIds.forEach(productChangeQueue::markChanged);
         
         logger.info("Successfully removed {} products with brand: {}", productIds.size(), brandName);
     }
@@ -0,0 +1,566 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.dto.FacetCountDTO;
+import com.rijads.easycrawl.dto.ProductDTO;
+import com.rijads.easycrawl.dto.ProductSearchResultDTO;
+import com.rijads.easycrawl.model.Product;
+import com.rijads.easycrawl.repository.ProductRepository;
+import com.rijads.easycrawl.repository.ProductVariantRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.DrillDownQuery;
+import org.apache.lucene.facet.DrillSideways;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Embedded Lucene index of products for full-text search with facet counts.
+ *
+ * <p>Every document carries what a search hit shows, so searches are answered from the index
+ * alone. Facets are sorted-set doc values on brand, category, store, price bucket and stock
+ * state; counts are computed with drill-sideways, so a selected value does not hide the other
+ * values of its own facet.
+ *
+ * <p>Products changed on this instance arrive through the {@link ProductChangeQueue} and are
+ * re-read from the database on the next flush, which also refreshes the searcher.
+ * A rebuild rewrites every product from the database and then drops the documents it did not
+ * see, so searches keep working on a complete index while it runs, also when it fails halfway.
+ *
+ * <p>The index is local to one instance: its writer locks the directory, so every instance
+ * needs its own search.index-path. Products changed elsewhere, by other instances or while this
+ * one was down, are caught up from product.modified, starting at the time stored with the last
+ * index commit. Products deleted elsewhere are dropped by the periodic rebuild.
+ */
+@Component
+public class ProductSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    public static final String FACET_BRAND = "brand";
+    public static final String FACET_CATEGORY = "category";
+    public static final String FACET_STORE = "store";
+    public static final String FACET_PRICE = "price";
+    public static final String FACET_IN_STOCK = "inStock";
+    private static final List<String> FACETS =
+            List.of(FACET_BRAND, FACET_CATEGORY, FACET_STORE, FACET_PRICE, FACET_IN_STOCK);
+
+    private static final int[] PRICE_BUCKET_BOUNDS = {50, 100, 250, 500, 1000};
+    private static final int MAX_FACET_VALUES = 50;
+    private static final int MAX_HITS_WINDOW = 10_000;
+    private static final int BATCH_SIZE = 500;
+    // Commit data key of the time up to which product changes are in the index
+    private static final String CAUGHT_UP_TO = "caughtUpTo";
+    // Product.modified is stamped before its transaction commits, look back past the longest one
+    private static final Duration CATCH_UP_OVERLAP = Duration.ofMinutes(5);
+
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository variantRepository;
+    private final Path indexPath;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final FacetsConfig facetsConfig = new FacetsConfig();
+    private final ProductChangeQueue.Subscription changes;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Stamped on written documents, a rebuild drops those without its own stamp when done
+    private volatile String generation = "0";
+    // Product changes up to this time are in the index, null until it was built once
+    private volatile LocalDateTime caughtUpTo;
+
+    private FSDirectory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    public ProductSearchIndex(
+            ProductRepository productRepository,
+            ProductVariantRepository variantRepository,
+            ProductChangeQueue changeQueue,
+            @Value("${search.index-path:data/product-index}") String indexPath) {
+        this.productRepository = productRepository;
+        this.variantRepository = variantRepository;
+        this.changes = changeQueue.subscribe();
+        this.indexPath = Path.of(indexPath);
+        facetsConfig.setMultiValued(FACET_STORE, true);
+    }
+
+    /**
+     * Searcher with the facet state of its reader, built once per refresh instead of per search
+     */
+    private static final class FacetedSearcher extends IndexSearcher {
+        private final SortedSetDocValuesReaderState facetState;
+
+        private FacetedSearcher(IndexReader reader, SortedSetDocValuesReaderState facetState) {
+            super(reader);
+            this.facetState = facetState;
+        }
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = FSDirectory.open(indexPath);
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, new SearcherFactory() {
+            @Override
+            public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) throws IOException {
+                // The facet state cannot be built before any product carries a facet field
+                SortedSetDocValuesReaderState state = reader.numDocs() > 0
+                        ? new DefaultSortedSetDocValuesReaderState(reader, facetsConfig)
+                        : null;
+                return new FacetedSearcher(reader, state);
+            }
+        });
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData != null) {
+            for (Map.Entry<String, String> entry : commitData) {
+                if (CAUGHT_UP_TO.equals(entry.getKey())) {
+                    caughtUpTo = LocalDateTime.parse(entry.getValue());
+                }
+            }
+        }
+        logger.info("Opened product search index at {} with {} products, caught up to {}",
+                indexPath.toAbsolutePath(), writer.getDocStats().numDocs, caughtUpTo);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (writer.getDocStats().numDocs == 0 || caughtUpTo == null) {
+            logger.info("Product search index is empty or of unknown age, building it from the database");
+            requestRebuild();
+        }
+    }
+
+    /**
+     * Write the queued products to the index and make them searchable. A running rebuild holds
+     * the lock, the queue is applied after it.
+     */
+    @Scheduled(fixedDelayString = "${search.index-refresh-interval-ms:1000}")
+    public void flush() {
+        try {
+            if (changes.drain(writeLock, BATCH_SIZE, this::writeBatch)) {
+                searcherManager.maybeRefresh();
+            }
+        } catch (Exception e) {
+            logger.error("Error updating the product search index: {}", e.getMessage(), e);
+        }
+    }
+
+    private void writeBatch(List<Integer> ids) throws IOException {
+        List<Product> products = productRepository.findForIndexByIdIn(ids);
+        writeProducts(products);
+
+        // Products that no longer exist leave the index
+        Set<Integer> found = new HashSet<>();
+        products.forEach(product -> found.add(product.getId()));
+        for (Integer id : ids) {
+            if (!found.contains(id)) {
+                writer.deleteDocuments(new Term("id", String.valueOf(id)));
+            }
+        }
+    }
+
+    /**
+     * Re-index the products modified since the last catch-up, including those changed by other
+     * instances
+     */
+    @Scheduled(
+            initialDelayString = "${search.catch-up-interval-ms:60000}",
+            fixedDelayString = "${search.catch-up-interval-ms:60000}")
+    public void catchUp() {
+        LocalDateTime since = caughtUpTo;
+        if (since == null || !writeLock.tryLock()) {
+            // Not built yet, or a rebuild is running which covers the changes anyway
+            return;
+        }
+        try {
+            LocalDateTime started = LocalDateTime.now();
+            List<Integer> ids = productRepository.findIdsModifiedSince(since.minus(CATCH_UP_OVERLAP));
+            for (int start = 0; start < ids.size(); start += BATCH_SIZE) {
+                writeProducts(productRepository.findForIndexByIdIn(
+                        ids.subList(start, Math.min(start + BATCH_SIZE, ids.size()))));
+            }
+            caughtUpTo = started;
+            if (!ids.isEmpty()) {
+                searcherManager.maybeRefresh();
+            }
+        } catch (Exception e) {
+            logger.error("Error catching up the product search index: {}", e.getMessage(), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.index-commit-interval-ms:60000}")
+    public void commit() {
+        if (!writer.hasUncommittedChanges() || !writeLock.tryLock()) {
+            return;
+        }
+        try {
+            storeCaughtUpTo();
+            writer.commit();
+        } catch (IOException e) {
+            logger.error("Error committing the product search index: {}", e.getMessage(), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void storeCaughtUpTo() {
+        if (caughtUpTo != null) {
+            writer.setLiveCommitData(Map.of(CAUGHT_UP_TO, caughtUpTo.toString()).entrySet());
+        }
+    }
+
+    /**
+     * Periodic rebuild, drops products that were deleted by other instances
+     */
+    @Scheduled(
+            initialDelayString = "${search.rebuild-interval-ms:21600000}",
+            fixedDelayString = "${search.rebuild-interval-ms:21600000}")
+    public void scheduledRebuild() {
+        requestRebuild();
+    }
+
+    /**
+     * Start rebuilding the index from the database in the background
+     *
+     * @return false when a rebuild is already running
+     */
+    public boolean requestRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        rebuildExecutor.submit(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("Error rebuilding the product search index: {}", e.getMessage(), e);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    private void rebuild() throws IOException {
+        writeLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            LocalDateTime started = LocalDateTime.now();
+            generation = String.valueOf(start);
+            int indexed = 0;
+            int lastId = 0;
+            List<Product> batch;
+            do {
+                batch = productRepository.findForIndexAfter(lastId, PageRequest.of(0, BATCH_SIZE));
+                if (!batch.isEmpty()) {
+                    writeProducts(batch);
+                    indexed += batch.size();
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == BATCH_SIZE);
+
+            // Whatever this rebuild did not write belongs to a product that is gone
+            writer.deleteDocuments(new BooleanQuery.Builder()
+                    .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+                    .add(new TermQuery(new Term("generation", generation)), BooleanClause.Occur.MUST_NOT)
+                    .build());
+            caughtUpTo = started;
+            storeCaughtUpTo();
+            writer.commit();
+            searcherManager.maybeRefresh();
+            logger.info("Rebuilt product search index with {} products in {} ms",
+                    indexed, System.currentTimeMillis() - start);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void writeProducts(List<Product> products) throws IOException {
+        if (products.isEmpty()) {
+            return;
+        }
+        Map<Integer, Set<String>> stores = new HashMap<>();
+        Map<Integer, Boolean> inStock = new HashMap<>();
+        for (Object[] row : variantRepository.findStockByProductIdIn(
+                products.stream().map(Product::getId).toList())) {
+            Integer productId = (Integer) row[0];
+            if (row[1] != null) {
+                stores.computeIfAbsent(productId, id -> new HashSet<>()).add((String) row[1]);
+            }
+            inStock.merge(productId, Boolean.TRUE.equals(row[2]), Boolean::logicalOr);
+        }
+
+        for (Product product : products) {
+            Document document = toDocument(
+                    product,
+                    stores.getOrDefault(product.getId(), Set.of()),
+                    inStock.getOrDefault(product.getId(), false));
+            writer.updateDocument(new Term("id", String.valueOf(product.getId())), facetsConfig.build(document));
+        }
+    }
+
+    private Document toDocument(Product product, Set<String> stores, boolean inStock) {
+        Document document = new Document();
+        document.add(new StringField("id", String.valueOf(product.getId()), Field.Store.YES));
+        document.add(new StringField("generation", generation, Field.Store.NO));
+        addText(document, "name", product.getName());
+        addText(document, "brand", product.getBrand());
+        addText(document, "model", product.getModel());
+        addStored(document, "imageUrl", product.getImageUrl());
+        addStored(document, "lowestPrice", product.getLowestPrice());
+        addStored(document, "highestPrice", product.getHighestPrice());
+        if (product.getStoreCount() != null) {
+            document.add(new StoredField("storeCount", product.getStoreCount()));
+        }
+        if (product.getHasPriceHistory() != null) {
+            document.add(new StoredField("hasPriceHistory", product.getHasPriceHistory().toString()));
+        }
+
+        String category = product.getCategory() != null ? product.getCategory().getName() : null;
+        addStored(document, "category", category);
+
+        addFacet(document, FACET_BRAND, product.getBrand());
+        addFacet(document, FACET_CATEGORY, category);
+        for (String store : stores) {
+            addFacet(document, FACET_STORE, store);
+        }
+        addFacet(document, FACET_PRICE, priceBucket(product.getLowestPrice()));
+        addFacet(document, FACET_IN_STOCK, String.valueOf(inStock));
+        return document;
+    }
+
+    private static void addText(Document document, String field, String value) {
+        if (value != null && !value.isBlank()) {
+            document.add(new TextField(field, value, Field.Store.YES));
+        }
+    }
+
+    private static void addStored(Document document, String field, Object value) {
+        if (value != null) {
+            document.add(new StoredField(field, value instanceof BigDecimal decimal
+                    ? decimal.toPlainString() : value.toString()));
+        }
+    }
+
+    private static void addFacet(Document document, String dim, String value) {
+        if (value != null && !value.isBlank()) {
+            document.add(new SortedSetDocValuesFacetField(dim, value));
+        }
+    }
+
+    /**
+     * Label of the price range the lowest price falls into, e.g. "100-250" or "1000+"
+     */
+    public static String priceBucket(BigDecimal price) {
+        if (price == null) {
+            return null;
+        }
+        int lower = 0;
+        for (int bound : PRICE_BUCKET_BOUNDS) {
+            if (price.compareTo(BigDecimal.valueOf(bound)) < 0) {
+                return lower + "-" + bound;
+            }
+            lower = bound;
+        }
+        return lower + "+";
+    }
+
+    /**
+     * Search the index. Filters are exact facet values, e.g. brand=Samsung or price=100-250;
+     * every facet of the result is counted as if its own filter was not applied.
+     */
+    public ProductSearchResultDTO search(String text, Map<String, String> filters, int page, int size) {
+        ProductSearchResultDTO result = new ProductSearchResultDTO();
+        result.setPage(page);
+        result.setSize(size);
+        result.setHits(new ArrayList<>());
+
+        FacetedSearcher searcher;
+        try {
+            searcher = (FacetedSearcher) searcherManager.acquire();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            if (searcher.facetState == null) {
+                return result;
+            }
+
+            DrillDownQuery query = new DrillDownQuery(facetsConfig, textQuery(text));
+            filters.forEach((dim, value) -> {
+                if (FACETS.contains(dim) && value != null && !value.isBlank()) {
+                    query.add(dim, value);
+                }
+            });
+
+            int topN = Math.min(MAX_HITS_WINDOW, (page + 1) * size);
+            DrillSideways.DrillSidewaysResult found =
+                    new DrillSideways(searcher, facetsConfig, searcher.facetState).search(query, topN);
+
+            result.setTotalHits(found.hits.totalHits.value);
+            ScoreDoc[] scoreDocs = found.hits.scoreDocs;
+            for (int i = page * size; i < scoreDocs.length; i++) {
+                result.getHits().add(toDto(searcher.storedFields().document(scoreDocs[i].doc)));
+            }
+            for (String dim : FACETS) {
+                result.getFacets().put(dim, facetCounts(found.facets, dim));
+            }
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                searcherManager.release(searcher);
+            } catch (IOException e) {
+                logger.warn("Could not release product index searcher: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Every search term has to match name, brand or model, the last one also as a prefix
+     */
+    private Query textQuery(String text) throws IOException {
+        if (text == null || text.isBlank()) {
+            return new MatchAllDocsQuery();
+        }
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("name", text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        }
+        if (terms.isEmpty()) {
+            return new MatchAllDocsQuery();
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (int i = 0; i < terms.size(); i++) {
+            boolean last = i == terms.size() - 1;
+            BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+            for (String field : List.of("name", "brand", "model")) {
+                Term term = new Term(field, terms.get(i));
+                Query fieldQuery = last ? new PrefixQuery(term) : new TermQuery(term);
+                // Brand and model hits are more specific than a word somewhere in the name
+                anyField.add("name".equals(field) ? fieldQuery : new BoostQuery(fieldQuery, 2f),
+                        BooleanClause.Occur.SHOULD);
+            }
+            query.add(anyField.build(), BooleanClause.Occur.MUST);
+        }
+        return query.build();
+    }
+
+    private static List<FacetCountDTO> facetCounts(Facets facets, String dim) throws IOException {
+        List<FacetCountDTO> counts = new ArrayList<>();
+        FacetResult facetResult;
+        try {
+            facetResult = facets.getTopChildren(MAX_FACET_VALUES, dim);
+        } catch (IllegalArgumentException e) {
+            // No indexed product has a value for this facet yet
+            return counts;
+        }
+        if (facetResult != null) {
+            for (LabelAndValue labelAndValue : facetResult.labelValues) {
+                counts.add(new FacetCountDTO(labelAndValue.label, labelAndValue.value.longValue()));
+            }
+        }
+        return counts;
+    }
+
+    private static ProductDTO toDto(Document document) {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(Integer.valueOf(document.get("id")));
+        dto.setName(document.get("name"));
+        dto.setBrand(document.get("brand"));
+        dto.setModel(document.get("model"));
+        dto.setCategory(document.get("category"));
+        dto.setImageUrl(document.get("imageUrl"));
+        dto.setLowestPrice(document.get("lowestPrice") != null ? new BigDecimal(document.get("lowestPrice")) : null);
+        dto.setHighestPrice(document.get("highestPrice") != null ? new BigDecimal(document.get("highestPrice")) : null);
+        dto.setStoreCount(document.getField("storeCount") != null
+                ? document.getField("storeCount").numericValue().intValue() : null);
+        dto.setHasPriceHistory(document.get("hasPriceHistory") != null
+                ? Boolean.valueOf(document.get("hasPriceHistory")) : null);
+        return dto;
+    }
+
+    @PreDestroy
+    public void close() {
+        rebuildExecutor.shutdownNow();
+        try {
+            searcherManager.close();
+            writer.close();
+            directory.close();
+        } catch (IOException e) {
+            logger.error("Error closing the product search index: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.rijads.easycrawl.service;
 
+import com.rijads.easycrawl.config.CacheConfiguration;
+import com.rijads.easycrawl.dto.CursorPageDTO;
 import com.rijads.easycrawl.dto.JobDTO;
 import com.rijads.easycrawl.dto.ProductDTO;
+import com.rijads.easycrawl.dto.ProductSearchResultDTO;
 import com.rijads.easycrawl.dto.ProductVariantDTO;
+import com.rijads.easycrawl.dto.SuggestionDTO;
 import com.rijads.easycrawl.mapper.ProductMapper;
 import com.rijads.easycrawl.model.Product;
 import com.rijads.easycrawl.model.ProductCategory;
@@ -10,18 +14,28 @@ import com.rijads.easycrawl.model.ProductVariant;
 import com.rijads.easycrawl.repository.ProductCategoryRepository;
 import com.rijads.easycrawl.repository.ProductRepository;
 import com.rijads.easycrawl.repository.ProductVariantRepository;
+import com.rijads.easycrawl.specification.KeysetPagination;
 import com.rijads.easycrawl.specification.ProductSpecification;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ProductService {
+    private static final Set<String> CURSOR_SORTS = Set.of("name");
 
     private final ProductRepository productRepository;
     private final ProductVariantRepository variantRepository;
@@ -29,6 +43,8 @@ public class ProductService {
     private final JobService jobService;
     private final ProductMapper productMapper;
     private final ProductCategoryRepository repository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggestIndex productSuggestIndex;
 
     public ProductService(
             ProductRepository productRepository,
@@ -36,13 +52,17 @@ public class ProductService {
             ProductMatchingService productMatchingService,
             JobService jobService,
             ProductMapper productMapper,
-            ProductCategoryRepository repository) {
+            ProductCategoryRepository repository,
+            ProductSearchIndex productSearchIndex,
+            ProductSuggestIndex productSuggestIndex) {
         this.productRepository = productRepository;
         this.variantRepository = variantRepository;
         this.productMatchingService = productMatchingService;
         this.jobService = jobService;
         this.productMapper = productMapper;
         this.repository = repository;
+        this.productSearchIndex = productSearchIndex;
+        this.productSuggestIndex = productSuggestIndex;
     }
 
     public Page<ProductDTO> searchProducts(
@@ -51,7 +71,63 @@ public class ProductService {
                 Specification.where(ProductSpecification.hasBrand(brand))
                         .and(ProductSpecification.hasCategory(category))
                         .and(ProductSpecification.hasName(name));
-        return productRepository.findAll(spec, pageable).map(productMapper::toDto);
+        return productRepository.findProductRows(spec, pageable);
+    }
+
+    /**
+     * Same filters as {@link #searchProducts}, paged with a cursor instead of an offset
+     */
+    public CursorPageDTO<ProductDTO> searchProductSlice(
+            String name,
+            String category,
+            String brand,
+            String cursor,
+            String sort,
+            Sort.Direction direction,
+            Integer size) {
+        Specification<Product> spec =
+                Specification.where(ProductSpecification.hasBrand(brand))
+                        .and(ProductSpecification.hasCategory(category))
+                        .and(ProductSpecification.hasName(name))
+                        .and(ProductSpecification.fetchCategory());
+        return KeysetPagination.fetch(
+                productRepository, spec, cursor, sort, direction, size, CURSOR_SORTS, productMapper::toDto);
+    }
+
+    /**
+     * Full-text search with facet counts, answered from the product search index
+     */
+    public ProductSearchResultDTO searchProductIndex(
+            String query,
+            String category,
+            String brand,
+            String store,
+            String price,
+            Boolean inStock,
+            Pageable pageable) {
+        Map<String, String> filters = new HashMap<>();
+        filters.put(ProductSearchIndex.FACET_CATEGORY, category);
+        filters.put(ProductSearchIndex.FACET_BRAND, brand);
+        filters.put(ProductSearchIndex.FACET_STORE, store);
+        filters.put(ProductSearchIndex.FACET_PRICE, price);
+        filters.put(ProductSearchIndex.FACET_IN_STOCK, inStock != null ? inStock.toString() : null);
+        return productSearchIndex.search(query, filters, pageable.getPageNumber(), pageable.getPageSize());
+    }
+
+    /**
+     * Rebuild the product search index from the database in the background
+     *
+     * @return false when a rebuild is already running
+     */
+    public boolean rebuildSearchIndex() {
+        return productSearchIndex.requestRebuild();
+    }
+
+    /**
+     * Typeahead completions over brands, models and product names, answered from memory
+     */
+    public List<SuggestionDTO> suggest(String query, Integer limit) {
+        return productSuggestIndex.suggest(query, limit);
     }
 
     public Page<ProductVariantDTO> getProductById(
@@ -107,8 +183,47 @@ public class ProductService {
             spec = spec.and((root,query,criteriaBuilder) ->
                     criteriaBuilder.like(criteriaBuilder.lower(root.get("property4")), "%" + property4.toLowerCase() + "%"));
         }
-        Page<ProductVariant> variants = variantRepository.findAll(spec, pageable);
-        return variants.map(productMapper::variantToVariantDTO);
+        return variantRepository.findVariantRows(spec, pageable);
+    }
+
+    /**
+     * Validators for the variants, grouped variants and rollups of a product, empty when the
+     * product does not exist
+     */
+    public Optional<ResourceVersion> getProductVersion(Integer productId) {
+        return productRepository.findDataVersion(productId).map(ProductService::toResourceVersion);
+    }
+
+    /**
+     * Validators for the price history and rollups of a variant, empty when the variant does not
+     * exist
+     */
+    public Optional<ResourceVersion> getVariantVersion(Integer variantId) {
+        return productRepository.findDataVersionByVariantId(variantId).map(ProductService::toResourceVersion);
+    }
+
+    /**
+     * Validators for the price history of the variants with this title and website, empty when
+     * there are none
+     */
+    public Optional<ResourceVersion> getVariantGroupVersion(String title, String websiteCode) {
+        ProductRepository.GroupDataVersion version = productRepository.findGroupDataVersion(title, websiteCode);
+        if (version == null || version.getVariantCount() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new ResourceVersion(
+                "\"g" + version.getVariantCount() + "-" + version.getVersion() + "\"",
+                toEpochMilli(version.getModified())));
+    }
+
+    private static ResourceVersion toResourceVersion(ProductRepository.DataVersion version) {
+        return new ResourceVersion(
+                "\"p" + version.getProductId() + "-" + version.getVersion() + "\"",
+                toEpochMilli(version.getModified()));
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
     }
 
     public JobDTO triggerProductProcessing() {
@@ -117,8 +232,9 @@ public class ProductService {
         return jobService.create(jobDTO);
     }
 
+    @Cacheable(CacheConfiguration.BRANDS)
     public List<String> getBrandsList() {
-        return productRepository.findDistinctBrands();
+        return List.copyOf(productRepository.findDistinctBrands());
     }
 
     public JobDTO triggerCategoryProcessing(String category) {
@@ -143,7 +259,8 @@ public class ProductService {
         return productMatchingService.processRawProduct(rawItemOpt.get());
     }
 
+    @Cacheable(CacheConfiguration.CATEGORIES)
     public List<ProductCategory> getAllProductGategories() {
-        return repository.findAll();
+        return List.copyOf(repository.findAll());
     }
 }
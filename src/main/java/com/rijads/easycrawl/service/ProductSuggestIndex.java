@@ -0,0 +1,306 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.dto.SuggestionDTO;
+import com.rijads.easycrawl.model.Product;
+import com.rijads.easycrawl.model.ProductRegistry;
+import com.rijads.easycrawl.repository.ProductRegistryRepository;
+import com.rijads.easycrawl.repository.ProductRepository;
+import com.rijads.easycrawl.utility.WeightedRadixTrie;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory typeahead over brands, models and product names.
+ *
+ * <p>Completions live in a {@link WeightedRadixTrie} keyed by the normalized text. A text is
+ * weighted by the products carrying it, each counting one plus its number of stores, so a
+ * suggest request is a walk of the trie and never touches the database.
+ *
+ * <p>Changed products arrive through the {@link ProductChangeQueue} and are applied on the next
+ * flush: what a product contributed before is taken out and its current values are put in.
+ * Registry changes can remove whole brands, so they rebuild the trie instead; the rebuild fills
+ * a new trie and swaps it in, suggestions keep coming from the old one meanwhile.
+ */
+@Component
+public class ProductSuggestIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+
+    private static final int BATCH_SIZE = 500;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public enum SuggestionType { BRAND, MODEL, NAME }
+
+    /**
+     * A completion and the weight each type adds to it
+     */
+    private static final class Entry {
+        private final String text;
+        private final long[] weights = new long[SuggestionType.values().length];
+        private final int[] sources = new int[SuggestionType.values().length];
+
+        private Entry(String text) {
+            this.text = text;
+        }
+
+        private long weight() {
+            long total = 0;
+            for (long weight : weights) {
+                total += weight;
+            }
+            return total;
+        }
+
+        private boolean isEmpty() {
+            for (int count : sources) {
+                if (count > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private SuggestionDTO toDto() {
+            List<String> types = new ArrayList<>(sources.length);
+            for (SuggestionType type : SuggestionType.values()) {
+                if (sources[type.ordinal()] > 0) {
+                    types.add(type.name());
+                }
+            }
+            return new SuggestionDTO(text, types, weight());
+        }
+    }
+
+    /**
+     * What one product put into the trie, taken back out when the product changes
+     */
+    private record Contribution(String brand, String model, String name, long weight) {}
+
+    /**
+     * The trie with the contributions it holds, replaced as a whole by a rebuild
+     */
+    private static final class State {
+        private final WeightedRadixTrie<Entry> trie = new WeightedRadixTrie<>();
+        private final Map<Integer, Contribution> products = new HashMap<>();
+
+        private void putProduct(Product product) {
+            removeProduct(product.getId());
+            long weight = 1L + (product.getStoreCount() != null ? product.getStoreCount() : 0);
+            Contribution contribution =
+                    new Contribution(product.getBrand(), product.getModel(), product.getName(), weight);
+            products.put(product.getId(), contribution);
+            add(SuggestionType.BRAND, contribution.brand(), weight, 1);
+            add(SuggestionType.MODEL, contribution.model(), weight, 1);
+            add(SuggestionType.NAME, contribution.name(), weight, 1);
+        }
+
+        private void removeProduct(Integer productId) {
+            Contribution contribution = products.remove(productId);
+            if (contribution != null) {
+                add(SuggestionType.BRAND, contribution.brand(), -contribution.weight(), -1);
+                add(SuggestionType.MODEL, contribution.model(), -contribution.weight(), -1);
+                add(SuggestionType.NAME, contribution.name(), -contribution.weight(), -1);
+            }
+        }
+
+        private void add(SuggestionType type, String text, long weight, int sources) {
+            String key = normalize(text);
+            if (key.isEmpty()) {
+                return;
+            }
+            Entry entry = trie.get(key);
+            if (entry == null) {
+                if (sources < 0) {
+                    return;
+                }
+                entry = new Entry(WHITESPACE.matcher(text.trim()).replaceAll(" "));
+            }
+            entry.weights[type.ordinal()] += weight;
+            entry.sources[type.ordinal()] += sources;
+            if (entry.isEmpty()) {
+                trie.remove(key);
+            } else {
+                trie.put(key, entry, entry.weight());
+            }
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final ProductRegistryRepository registryRepository;
+    private final ProductChangeQueue.Subscription changes;
+    // Guards the current state against reads while it is changed or swapped
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    // Flush and rebuild, only one of them changes the index at a time
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean(false);
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-suggest-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private State state = new State();
+
+    public ProductSuggestIndex(
+            ProductRepository productRepository,
+            ProductRegistryRepository registryRepository,
+            ProductChangeQueue changeQueue) {
+        this.productRepository = productRepository;
+        this.registryRepository = registryRepository;
+        this.changes = changeQueue.subscribe();
+    }
+
+    /**
+     * Completions of q, heaviest first
+     */
+    public List<SuggestionDTO> suggest(String q, Integer limit) {
+        String prefix = normalize(q);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        int k = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        stateLock.readLock().lock();
+        try {
+            return state.trie.topK(prefix, k).stream().map(Entry::toDto).toList();
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild once the current transaction commits, registry changes can add or remove brands
+     */
+    public void markRegistryChanged() {
+        ProductChangeQueue.afterCommit(this::requestRebuild);
+    }
+
+    /**
+     * Apply the queued products. A running rebuild holds the lock, the queue is applied after it.
+     */
+    @Scheduled(fixedDelayString = "${suggest.refresh-interval-ms:1000}")
+    public void flush() {
+        try {
+            changes.drain(updateLock, BATCH_SIZE, this::applyBatch);
+        } catch (Exception e) {
+            logger.error("Error updating the product suggest index: {}", e.getMessage(), e);
+        }
+    }
+
+    private void applyBatch(List<Integer> ids) {
+        Map<Integer, Product> products = new HashMap<>();
+        productRepository.findAllById(ids).forEach(product -> products.put(product.getId(), product));
+
+        stateLock.writeLock().lock();
+        try {
+            for (Integer id : ids) {
+                Product product = products.get(id);
+                if (product != null) {
+                    state.putProduct(product);
+                } else {
+                    state.removeProduct(id);
+                }
+            }
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestRebuild();
+    }
+
+    /**
+     * Periodic rebuild, also picks up products removed by cleanup jobs
+     */
+    @Scheduled(
+            initialDelayString = "${suggest.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${suggest.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        requestRebuild();
+    }
+
+    /**
+     * Rebuild the index from the database in the background. Requests made while a rebuild is
+     * waiting to start share it.
+     */
+    public void requestRebuild() {
+        if (!rebuildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        rebuildExecutor.submit(() -> {
+            rebuildQueued.set(false);
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("Error rebuilding the product suggest index: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    private void rebuild() {
+        updateLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            State rebuilt = new State();
+            int lastId = 0;
+            List<Product> batch;
+            do {
+                batch = productRepository.findForIndexAfter(lastId, PageRequest.of(0, BATCH_SIZE));
+                for (Product product : batch) {
+                    rebuilt.putProduct(product);
+                    lastId = product.getId();
+                }
+            } while (batch.size() == BATCH_SIZE);
+
+            // Registered brands are suggested even before any product carries them
+            for (ProductRegistry brand :
+                    registryRepository.findByRegistryTypeAndEnabledTrue(ProductRegistry.RegistryType.BRAND)) {
+                rebuilt.add(SuggestionType.BRAND, brand.getRegistryKey(), 0, 1);
+            }
+
+            stateLock.writeLock().lock();
+            try {
+                state = rebuilt;
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            logger.info("Rebuilt product suggest index with {} completions from {} products in {} ms",
+                    rebuilt.trie.size(), rebuilt.products.size(), System.currentTimeMillis() - start);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return WHITESPACE.matcher(text.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+}
@@ -6,7 +6,6 @@ import com.rijads.easycrawl.dto.ProductVariantDTO;
 import com.rijads.easycrawl.mapper.PriceHistoryMapper;
 import com.rijads.easycrawl.mapper.ProductMapper;
 import com.rijads.easycrawl.model.PriceHistory;
-import com.rijads.easycrawl.model.Product;
 import com.rijads.easycrawl.model.ProductVariant;
 import com.rijads.easycrawl.repository.PriceHistoryRepository;
 import com.rijads.easycrawl.repository.ProductRepository;
@@ -14,14 +13,14 @@ import com.rijads.easycrawl.repository.ProductVariantRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class ProductVariantService {
@@ -33,127 +32,119 @@ public class ProductVariantService {
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
     private final PriceHistoryMapper priceHistoryMapper;
+    private final PriceSeriesCache priceSeriesCache;
+
+    @Value("${price-history.max-points:1000}")
+    private int priceHistoryMaxPoints;
+
+    @Value("${price-history.grouped-max-points:100}")
+    private int groupedHistoryMaxPoints;
     
     public ProductVariantService(
             ProductVariantRepository variantRepository,
             PriceHistoryRepository priceHistoryRepository,
             ProductRepository productRepository,
             ProductMapper productMapper,
-            PriceHistoryMapper priceHistoryMapper) {
+            PriceHistoryMapper priceHistoryMapper,
+            PriceSeriesCache priceSeriesCache) {
         this.variantRepository = variantRepository;
         this.priceHistoryRepository = priceHistoryRepository;
         this.productRepository = productRepository;
         this.productMapper = productMapper;
         this.priceHistoryMapper = priceHistoryMapper;
+        this.priceSeriesCache = priceSeriesCache;
     }
     
     /**
-     * Get all price history for a variant
+     * Get price history for a variant, downsampled to at most maxPoints entries
      */
-    public List<PriceHistoryDTO> getVariantPriceHistory(Integer variantId) {
-        Optional<ProductVariant> variantOpt = variantRepository.findById(variantId);
-        if (variantOpt.isEmpty()) {
+    public List<PriceHistoryDTO> getVariantPriceHistory(
+            Integer variantId, LocalDate from, LocalDate to, Integer maxPoints) {
+        if (!priceSeriesCache.contains(variantId) && !variantRepository.existsById(variantId)) {
             throw new EntityNotFoundException("Variant not found");
         }
-        
-        List<PriceHistory> history = priceHistoryRepository.findByVariantOrderByRecordedAtDesc(variantOpt.get());
-        return priceHistoryMapper.toDtoList(history);
+
+        return priceSeriesCache.getHistory(List.of(variantId), from, to, resolveMaxPoints(maxPoints));
     }
     
     /**
-     * Get price history for variants with the same title and website code
+     * Get price history for variants with the same title and website code,
+     * downsampled to at most maxPoints entries
      */
-    public List<PriceHistoryDTO> getGroupedVariantPriceHistory(String title, String websiteCode) {
-        List<PriceHistory> history = priceHistoryRepository.findByTitleAndWebsiteCodeOrderByRecordedAtDesc(
-                title, websiteCode);
-        return priceHistoryMapper.toDtoList(history);
+    public List<PriceHistoryDTO> getGroupedVariantPriceHistory(
+            String title, String websiteCode, LocalDate from, LocalDate to, Integer maxPoints) {
+        List<Integer> variantIds = variantRepository.findIdsByTitleAndWebsiteCode(title, websiteCode);
+        return priceSeriesCache.getHistory(variantIds, from, to, resolveMaxPoints(maxPoints));
+    }
+
+    private int resolveMaxPoints(Integer maxPoints) {
+        return maxPoints == null || maxPoints <= 0
+                ? priceHistoryMaxPoints
+                : Math.min(maxPoints, priceHistoryMaxPoints);
     }
     
     /**
      * Get grouped variants for a product
-     * This groups variants by title and website code
+     * This groups variants by title and website code, each group with its latest
+     * price-history.grouped-max-points history entries. Runs one query for the groups and one
+     * for the history of all of them.
      */
     public List<GroupedVariantDTO> getGroupedVariants(Integer productId) {
-        // Check if product exists
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new EntityNotFoundException("Product not found"));
-        
-        // Get unique title-website combinations
-        List<Map<String, String>> titleWebsiteCombos = 
-                variantRepository.findDistinctTitleAndWebsiteByProductId(productId);
-        
-        // Create grouped variants
-        List<GroupedVariantDTO> result = new ArrayList<>();
-        
-        for (Map<String, String> combo : titleWebsiteCombos) {
-            String title = combo.get("title");
-            String websiteCode = combo.get("websiteCode");
-            
-            // Get all variants with this title and website
-            List<ProductVariant> variants = variantRepository.findByTitleAndWebsiteCode(title, websiteCode);
-            
-            if (!variants.isEmpty()) {
-                // Create a grouped variant
-                GroupedVariantDTO groupedVariant = createGroupedVariant(variants, title, websiteCode);
-                result.add(groupedVariant);
+        List<ProductVariantRepository.VariantGroupRow> groups =
+                variantRepository.findVariantGroupsByProductId(productId);
+        if (groups.isEmpty()) {
+            if (!productRepository.existsById(productId)) {
+                throw new EntityNotFoundException("Product not found");
             }
+            return Collections.emptyList();
+        }
+
+        Map<GroupKey, List<PriceHistoryDTO>> histories = new HashMap<>();
+        for (PriceHistoryRepository.GroupedHistoryRow row :
+                priceHistoryRepository.findLatestGroupedHistoryByProductId(productId, groupedHistoryMaxPoints)) {
+            histories.computeIfAbsent(new GroupKey(row.getTitle(), row.getGroupWebsiteCode()), key -> new ArrayList<>())
+                    .add(toHistoryDto(row));
+        }
+
+        List<GroupedVariantDTO> result = new ArrayList<>(groups.size());
+        for (ProductVariantRepository.VariantGroupRow group : groups) {
+            GroupedVariantDTO dto = new GroupedVariantDTO();
+            dto.setTitle(group.getTitle());
+            dto.setWebsiteCode(group.getWebsiteCode());
+            dto.setWebsiteName(group.getWebsiteName());
+            dto.setColor(group.getColor());
+            dto.setSize(group.getSize());
+            dto.setCurrentPrice(group.getPrice());
+            dto.setSourceUrl(group.getSourceUrl());
+            dto.setImageUrl(group.getImageUrl());
+            dto.setVariantCount(group.getVariantCount());
+            dto.setLastUpdated(group.getModified() != null
+                    ? group.getModified().format(DateTimeFormatter.ISO_DATE_TIME) : null);
+            dto.setLowestPrice(group.getLowestPrice());
+            dto.setHighestPrice(group.getHighestPrice());
+            dto.setPriceHistory(histories.getOrDefault(
+                    new GroupKey(group.getTitle(), group.getWebsiteCode()), Collections.emptyList()));
+            result.add(dto);
         }
-        
         return result;
     }
-    
+
     /**
-     * Create a grouped variant from a list of variants with the same title and website
+     * Title and website of a variant group, either may be null
      */
-    private GroupedVariantDTO createGroupedVariant(
-            List<ProductVariant> variants, String title, String websiteCode) {
-        
-        GroupedVariantDTO dto = new GroupedVariantDTO();
-        dto.setTitle(title);
-        dto.setWebsiteCode(websiteCode);
-        
-        // Get the most recent variant for current data
-        variants.sort(Comparator.comparing(ProductVariant::getModified).reversed());
-        ProductVariant latest = variants.get(0);
-        
-        // Set current information from latest variant
-        dto.setWebsiteName(latest.getWebsite().getName());
-        dto.setColor(latest.getColor());
-        dto.setSize(latest.getSize());
-        dto.setCurrentPrice(latest.getPrice());
-        dto.setSourceUrl(latest.getSourceUrl());
-        dto.setImageUrl(latest.getImageUrl());
-        dto.setVariantCount(variants.size());
-        dto.setLastUpdated(latest.getModified().format(DateTimeFormatter.ISO_DATE_TIME));
-        
-        // Calculate min/max prices
-        BigDecimal minPrice = variants.stream()
-                .map(ProductVariant::getPrice)
-                .filter(Objects::nonNull)
-                .min(BigDecimal::compareTo)
-                .orElse(null);
-        
-        BigDecimal maxPrice = variants.stream()
-                .map(ProductVariant::getPrice)
-                .filter(Objects::nonNull)
-                .max(BigDecimal::compareTo)
-                .orElse(null);
-        
-        dto.setLowestPrice(minPrice);
-        dto.setHighestPrice(maxPrice);
-        
-        // Get price history
-        List<Integer> variantIds = variants.stream()
-                .map(ProductVariant::getId)
-                .collect(Collectors.toList());
-        
-        if (!variantIds.isEmpty()) {
-            List<PriceHistory> priceHistory = priceHistoryRepository.findByVariantIdsOrderByRecordedAtDesc(variantIds);
-            dto.setPriceHistory(priceHistoryMapper.toDtoList(priceHistory));
-        } else {
-            dto.setPriceHistory(Collections.emptyList());
-        }
-        
+    private record GroupKey(String title, String websiteCode) {}
+
+    private static PriceHistoryDTO toHistoryDto(PriceHistoryRepository.GroupedHistoryRow row) {
+        PriceHistoryDTO dto = new PriceHistoryDTO();
+        dto.setId(row.getId());
+        dto.setVariantId(row.getVariantId());
+        dto.setWebsiteCode(row.getWebsiteCode());
+        dto.setWebsiteName(row.getWebsiteName());
+        dto.setPrice(row.getPrice());
+        dto.setOldPrice(row.getOldPrice());
+        dto.setDiscount(row.getDiscount());
+        dto.setPriceString(row.getPriceString());
+        dto.setRecordedAt(row.getRecordedAt());
         return dto;
     }
     
@@ -205,7 +196,7 @@ public class ProductVariantService {
                 // Update to the original crawl time
                 existingEntry.setRecordedAt(recordTime);
                 
-                priceHistoryRepository.save(existingEntry);
+                priceSeriesCache.record(priceHistoryRepository.save(existingEntry));
                 logger.debug("Updated existing price history for variant {} with new price information for date {}",
                         variant.getId(), recordTime.toLocalDate());
             } else {
@@ -223,7 +214,7 @@ public class ProductVariantService {
             history.setPriceString(variant.getPriceString());
             history.setRecordedAt(recordTime);
             
-            priceHistoryRepository.save(history);
+            priceSeriesCache.record(priceHistoryRepository.save(history));
             logger.debug("Created new price history for variant {} for date {}",
                     variant.getId(), recordTime.toLocalDate());
         }
@@ -0,0 +1,16 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.config.CacheConfiguration;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Component;
+
+/**
+ * Eviction of cached reference data for services that change it as a side effect, such as new
+ * brands appearing while products are matched
+ */
+@Component
+public class ReferenceDataCache {
+
+    @CacheEvict(cacheNames = CacheConfiguration.BRANDS, allEntries = true)
+    public void evictBrands() {}
+}
@@ -1,5 +1,6 @@
 package com.rijads.easycrawl.service;
 
+import com.rijads.easycrawl.config.CacheConfiguration;
 import com.rijads.easycrawl.dto.CrawlerWebsiteDTO;
 import com.rijads.easycrawl.dto.DropdownDTO;
 import com.rijads.easycrawl.mapper.CrawlerWebsiteMapper;
@@ -8,6 +9,8 @@ import com.rijads.easycrawl.model.CrawlerWebsite;
 import com.rijads.easycrawl.model.ProductCategory;
 import com.rijads.easycrawl.repository.CrawlerWebsiteRepository;
 import com.rijads.easycrawl.repository.ProductCategoryRepository;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -33,22 +36,30 @@ public class RegistryService {
         this.crawlerWebsiteMapper = crawlerWebsiteMapper;
     }
 
+    @Cacheable(CacheConfiguration.WEBSITE_DROPDOWN)
     public List<DropdownDTO> getAllWebsitesDropdown() {
         List<CrawlerWebsite> resEntities = crawlerWebsiteRepository.findAll();
         return resEntities.stream().map(dropdownMapper::crawlerWebsiteToDto).toList();
     }
 
+    @Cacheable(CacheConfiguration.CATEGORY_DROPDOWN)
     public List<DropdownDTO> getAllCategoriesDropdown() {
         List<ProductCategory> resEntities = productCategoryRepository.findAll();
         return resEntities.stream().map(dropdownMapper::productCategoryToDto).toList();
     }
 
+    @CacheEvict(
+            cacheNames = {CacheConfiguration.CATEGORIES, CacheConfiguration.CATEGORY_DROPDOWN},
+            allEntries = true)
     public ResponseEntity<DropdownDTO> addProductCategory(final DropdownDTO request) {
         ProductCategory entity = dropdownMapper.dtoToProductCategory(request);
         productCategoryRepository.save(entity);
         return ResponseEntity.ok(dropdownMapper.productCategoryToDto(entity));
     }
 
+    @CacheEvict(
+            cacheNames = {CacheConfiguration.WEBSITE_DROPDOWN, CacheConfiguration.CONFIG_DROPDOWN},
+            allEntries = true)
     public ResponseEntity<CrawlerWebsiteDTO> addCrawlerWebsite(final CrawlerWebsiteDTO request) {
         CrawlerWebsite entity = crawlerWebsiteMapper.dtoToEntity(request);
         entity.setCreated(LocalDateTime.now());
@@ -57,11 +68,17 @@ public class RegistryService {
         return ResponseEntity.ok(crawlerWebsiteMapper.toDto(entity));
     }
 
+    @CacheEvict(
+            cacheNames = {CacheConfiguration.CATEGORIES, CacheConfiguration.CATEGORY_DROPDOWN},
+            allEntries = true)
     public ResponseEntity<Void> deleteProductCategory(String id) {
         productCategoryRepository.deleteById(id);
         return ResponseEntity.ok().build();
     }
 
+    @CacheEvict(
+            cacheNames = {CacheConfiguration.WEBSITE_DROPDOWN, CacheConfiguration.CONFIG_DROPDOWN},
+            allEntries = true)
     public ResponseEntity<Void> deleteCrawlerWebsite(String id) {
         crawlerWebsiteRepository.deleteById(id);
         return ResponseEntity.ok().build();
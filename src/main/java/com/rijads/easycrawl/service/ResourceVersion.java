@@ -0,0 +1,7 @@
+package com.rijads.easycrawl.service;
+
+/**
+ * HTTP validators of a response: a strong ETag value (quoted) and the last modification time in
+ * epoch milliseconds, -1 when unknown
+ */
+public record ResourceVersion(String etag, long lastModified) {}
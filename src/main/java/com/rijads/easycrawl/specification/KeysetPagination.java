@@ -0,0 +1,161 @@
+package com.rijads.easycrawl.specification;
+
+import com.rijads.easycrawl.dto.CursorPageDTO;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Keyset ("seek") pagination for Specification based listings.
+ *
+ * <p>Rows are ordered by one sort attribute plus the id as tie breaker, and the next slice starts
+ * right after the (sort value, id) of the last row instead of at an OFFSET, so deep slices cost
+ * the same as the first one and no count query is run. The position is handed to clients as an
+ * opaque cursor that also carries the sort, so following requests only need the cursor.
+ * Sort attributes must be non-null columns, rows with a null key would never be reached.
+ */
+public final class KeysetPagination {
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 500;
+
+    private static final String ID = "id";
+    private static final String SEPARATOR = "|";
+
+    private KeysetPagination() {}
+
+    /**
+     * Position after the last row of a slice
+     */
+    public record Cursor(String sort, Sort.Direction direction, Integer id, String value) {
+
+        public String encode() {
+            String raw = sort + SEPARATOR + direction + SEPARATOR + id + SEPARATOR + value;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                // The value goes last, it may itself contain the separator
+                String[] parts = raw.split("\\" + SEPARATOR, 4);
+                return new Cursor(parts[0], Sort.Direction.valueOf(parts[1]), Integer.valueOf(parts[2]), parts[3]);
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+    }
+
+    /**
+     * Fetch one slice of the rows matching filter.
+     *
+     * @param cursor cursor of the previous slice, null for the first one
+     * @param sort sort attribute for the first slice, one of sortable, defaults to id
+     * @param direction sort direction for the first slice, defaults to descending
+     * @param size slice size, defaults to {@link #DEFAULT_SIZE} and is capped at {@link #MAX_SIZE}
+     */
+    public static <T, R> CursorPageDTO<R> fetch(
+            JpaSpecificationExecutor<T> repository,
+            Specification<T> filter,
+            String cursor,
+            String sort,
+            Sort.Direction direction,
+            Integer size,
+            Set<String> sortable,
+            Function<T, R> mapper) {
+        Cursor after = cursor != null && !cursor.isBlank() ? Cursor.decode(cursor) : null;
+        String sortKey = after != null ? after.sort() : (sort != null ? sort : ID);
+        Sort.Direction sortDirection = after != null
+                ? after.direction()
+                : (direction != null ? direction : Sort.Direction.DESC);
+        if (!ID.equals(sortKey) && !sortable.contains(sortKey)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Cannot page by " + sortKey + ", supported sorts are " + sortable);
+        }
+        int limit = size == null || size <= 0 ? DEFAULT_SIZE : Math.min(size, MAX_SIZE);
+
+        Specification<T> spec = Specification.where(filter);
+        if (after != null) {
+            spec = spec.and(after(after));
+        }
+        Sort order = ID.equals(sortKey)
+                ? Sort.by(sortDirection, ID)
+                : Sort.by(sortDirection, sortKey).and(Sort.by(sortDirection, ID));
+
+        // One extra row tells whether there is a next slice
+        List<T> rows = repository.findBy(spec, query -> query.sortBy(order).limit(limit + 1).all());
+        boolean hasNext = rows.size() > limit;
+        List<T> content = hasNext ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            T last = content.get(content.size() - 1);
+            var accessor = PropertyAccessorFactory.forBeanPropertyAccess(last);
+            Object value = accessor.getPropertyValue(sortKey);
+            nextCursor = new Cursor(
+                    sortKey, sortDirection, (Integer) accessor.getPropertyValue(ID),
+                    value != null ? value.toString() : "").encode();
+        }
+        return new CursorPageDTO<>(content.stream().map(mapper).toList(), limit, nextCursor);
+    }
+
+    /**
+     * Rows strictly after the cursor position in its sort order
+     */
+    private static <T> Specification<T> after(Cursor cursor) {
+        return (root, query, criteriaBuilder) -> {
+            Path<Integer> id = root.get(ID);
+            Predicate idAfter = compare(criteriaBuilder, cursor.direction(), id, cursor.id());
+            if (ID.equals(cursor.sort())) {
+                return idAfter;
+            }
+            Path<Comparable<Object>> key = root.get(cursor.sort());
+            Comparable<Object> value = parse(cursor.value(), key.getJavaType());
+            return criteriaBuilder.or(
+                    compare(criteriaBuilder, cursor.direction(), key, value),
+                    criteriaBuilder.and(criteriaBuilder.equal(key, value), idAfter));
+        };
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate compare(
+            CriteriaBuilder criteriaBuilder, Sort.Direction direction, Expression<? extends Y> path, Y value) {
+        return direction.isAscending()
+                ? criteriaBuilder.greaterThan(path, value)
+                : criteriaBuilder.lessThan(path, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> parse(String value, Class<?> type) {
+        try {
+            Object parsed;
+            if (type == LocalDateTime.class) {
+                parsed = LocalDateTime.parse(value);
+            } else if (type == Integer.class) {
+                parsed = Integer.valueOf(value);
+            } else if (type == Long.class) {
+                parsed = Long.valueOf(value);
+            } else if (type == BigDecimal.class) {
+                parsed = new BigDecimal(value);
+            } else {
+                parsed = value;
+            }
+            return (Comparable<Object>) parsed;
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
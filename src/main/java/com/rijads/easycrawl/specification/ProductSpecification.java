@@ -1,17 +1,51 @@
 package com.rijads.easycrawl.specification;
 
 import com.rijads.easycrawl.model.Product;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.JoinType;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.Collection;
+
 public class ProductSpecification {
+    /**
+     * Substring match on the name, served by the trigram index on lower(name). Unless the caller
+     * asked for a sort, the closest names come first.
+     */
     public static Specification<Product> hasName(String name){
-        return ((root, query, criteriaBuilder) ->
-                name==null?null:criteriaBuilder.like(criteriaBuilder.lower(root.get("name")), "%" + name.toLowerCase() + "%"));
+        return ((root, query, criteriaBuilder) -> {
+            if (name == null) {
+                return null;
+            }
+            String term = name.toLowerCase();
+            Expression<String> lowerName = criteriaBuilder.lower(root.get("name"));
+            if (query.getResultType() != Long.class && query.getOrderList().isEmpty()) {
+                query.orderBy(
+                        criteriaBuilder.desc(criteriaBuilder.function(
+                                "word_similarity", Double.class, criteriaBuilder.literal(term), lowerName)),
+                        criteriaBuilder.desc(root.get("id")));
+            }
+            return criteriaBuilder.like(lowerName, "%" + term + "%");
+        });
     }
     public static Specification<Product> hasCategory(String category){
         return ((root, query, criteriaBuilder) ->
                 category==null?null:criteriaBuilder.equal(root.get("category").get("code"), category));
     }
+    /**
+     * Load the category with the products, toDto reads its name for every row
+     */
+    public static Specification<Product> fetchCategory(){
+        return ((root, query, criteriaBuilder) -> {
+            if (query.getResultType() != Long.class) {
+                root.fetch("category", JoinType.LEFT);
+            }
+            return null;
+        });
+    }
+    public static Specification<Product> hasIdIn(Collection<Integer> ids){
+        return ((root, query, criteriaBuilder) -> root.get("id").in(ids));
+    }
     public static Specification<Product> hasBrand(String brand){
         return ((root, query, criteriaBuilder) ->
                 brand==null?null:criteriaBuilder.equal(root.get("brand"), brand));
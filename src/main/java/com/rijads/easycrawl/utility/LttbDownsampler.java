@@ -0,0 +1,90 @@
+package com.rijads.easycrawl.utility;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling over primitive arrays.
+ *
+ * <p>Keeps the first and last point and, for every bucket in between, the point that forms the
+ * largest triangle with the previously kept point and the average of the next bucket. The
+ * arrays are walked once from left to right and no per-point objects are allocated, so the cost
+ * stays linear in the series length while the output never exceeds the requested threshold.
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {}
+
+    /**
+     * Select the indices of the points to keep.
+     *
+     * @param x x values (e.g. epoch seconds), ascending
+     * @param y y values, same length as {@code x}
+     * @param threshold maximum number of points to return
+     * @return ascending indices into {@code x}/{@code y}
+     */
+    public static int[] downsample(long[] x, double[] y, int threshold) {
+        int length = x.length;
+        if (y.length != length) {
+            throw new IllegalArgumentException("x and y must have the same length");
+        }
+        if (threshold >= length || threshold <= 0) {
+            int[] all = new int[length];
+            for (int i = 0; i < length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        if (threshold < 3) {
+            // Not enough room for buckets, keep the end points only
+            return threshold == 1 ? new int[] {length - 1} : new int[] {0, length - 1};
+        }
+
+        int[] selected = new int[threshold];
+        int selectedCount = 0;
+        selected[selectedCount++] = 0;
+
+        // Bucket size for everything except the first and last point
+        double every = (double) (length - 2) / (threshold - 2);
+        int a = 0;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket, used as the third triangle vertex
+            int avgStart = (int) Math.floor((bucket + 1) * every) + 1;
+            int avgEnd = Math.min((int) Math.floor((bucket + 2) * every) + 1, length);
+            double avgX = 0;
+            double avgY = 0;
+            int avgLength = avgEnd - avgStart;
+            for (int i = avgStart; i < avgEnd; i++) {
+                avgX += x[i];
+                avgY += y[i];
+            }
+            if (avgLength > 0) {
+                avgX /= avgLength;
+                avgY /= avgLength;
+            } else {
+                avgX = x[length - 1];
+                avgY = y[length - 1];
+            }
+
+            // Pick the point in the current bucket with the largest triangle area
+            int rangeStart = (int) Math.floor(bucket * every) + 1;
+            int rangeEnd = (int) Math.floor((bucket + 1) * every) + 1;
+            double pointAX = x[a];
+            double pointAY = y[a];
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int i = rangeStart; i < rangeEnd; i++) {
+                double area = Math.abs((pointAX - avgX) * (y[i] - pointAY)
+                        - (pointAX - x[i]) * (avgY - pointAY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+
+            selected[selectedCount++] = next;
+            a = next;
+        }
+
+        selected[selectedCount++] = length - 1;
+        return selected;
+    }
+}
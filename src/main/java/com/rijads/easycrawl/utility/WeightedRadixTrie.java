@@ -0,0 +1,220 @@
+package com.rijads.easycrawl.utility;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Compressed prefix trie (radix tree) from string keys to weighted values.
+ *
+ * <p>Runs of single-child nodes are merged into one edge, so the tree has at most two nodes per
+ * key. Every node also keeps the highest weight found below it, which lets {@link #topK} walk
+ * the subtree of a prefix best-first and stop after k values instead of collecting all matches.
+ * Keys are compared as given, callers normalize them. Not thread-safe.
+ */
+public final class WeightedRadixTrie<V> {
+
+    private static final class Node<V> {
+        private String label;
+        private Map<Character, Node<V>> children;
+        private boolean hasValue;
+        private V value;
+        private long weight;
+        // Highest weight of this node and everything below it
+        private long best = Long.MIN_VALUE;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node<V> child(char first) {
+            return children != null ? children.get(first) : null;
+        }
+
+        private void addChild(Node<V> child) {
+            if (children == null) {
+                children = new HashMap<>(4);
+            }
+            children.put(child.label.charAt(0), child);
+        }
+
+        private int childCount() {
+            return children != null ? children.size() : 0;
+        }
+
+        private void recomputeBest() {
+            long max = hasValue ? weight : Long.MIN_VALUE;
+            if (children != null) {
+                for (Node<V> child : children.values()) {
+                    max = Math.max(max, child.best);
+                }
+            }
+            best = max;
+        }
+    }
+
+    /**
+     * A node still to expand, or a value ready to be returned
+     */
+    private record Candidate<V>(Node<V> node, boolean value, long weight) {}
+
+    private final Node<V> root = new Node<>("");
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public V get(String key) {
+        Node<V> node = root;
+        int offset = 0;
+        while (offset < key.length()) {
+            node = node.child(key.charAt(offset));
+            if (node == null || !key.startsWith(node.label, offset)) {
+                return null;
+            }
+            offset += node.label.length();
+        }
+        return node.hasValue ? node.value : null;
+    }
+
+    /**
+     * Add a key or replace its value and weight
+     */
+    public void put(String key, V value, long weight) {
+        put(root, key, 0, value, weight);
+    }
+
+    private void put(Node<V> node, String key, int offset, V value, long weight) {
+        if (offset == key.length()) {
+            if (!node.hasValue) {
+                node.hasValue = true;
+                size++;
+            }
+            node.value = value;
+            node.weight = weight;
+        } else {
+            Node<V> child = node.child(key.charAt(offset));
+            if (child == null) {
+                child = new Node<>(key.substring(offset));
+                node.addChild(child);
+            } else {
+                int common = commonPrefixLength(child.label, key, offset);
+                if (common < child.label.length()) {
+                    // The key leaves the edge halfway, split it at that point
+                    Node<V> split = new Node<>(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    split.addChild(child);
+                    split.recomputeBest();
+                    node.addChild(split);
+                    child = split;
+                }
+            }
+            put(child, key, offset + child.label.length(), value, weight);
+        }
+        node.recomputeBest();
+    }
+
+    /**
+     * @return the removed value, null when the key was not present
+     */
+    public V remove(String key) {
+        return remove(root, key, 0);
+    }
+
+    private V remove(Node<V> node, String key, int offset) {
+        V removed;
+        if (offset == key.length()) {
+            if (!node.hasValue) {
+                return null;
+            }
+            removed = node.value;
+            node.hasValue = false;
+            node.value = null;
+            size--;
+        } else {
+            char first = key.charAt(offset);
+            Node<V> child = node.child(first);
+            if (child == null || !key.startsWith(child.label, offset)) {
+                return null;
+            }
+            removed = remove(child, key, offset + child.label.length());
+            if (removed == null) {
+                return null;
+            }
+            // Keep the tree compressed: drop empty leaves and merge single-child nodes into their edge
+            if (!child.hasValue && child.childCount() == 0) {
+                node.children.remove(first);
+            } else if (!child.hasValue && child.childCount() == 1) {
+                Node<V> grandchild = child.children.values().iterator().next();
+                grandchild.label = child.label + grandchild.label;
+                node.children.put(first, grandchild);
+            }
+        }
+        node.recomputeBest();
+        return removed;
+    }
+
+    /**
+     * Values of the k heaviest keys starting with prefix, heaviest first
+     */
+    public List<V> topK(String prefix, int k) {
+        Node<V> start = root;
+        int offset = 0;
+        while (offset < prefix.length()) {
+            Node<V> child = start.child(prefix.charAt(offset));
+            if (child == null) {
+                return List.of();
+            }
+            int common = commonPrefixLength(child.label, prefix, offset);
+            if (offset + common == prefix.length()) {
+                // The prefix ends on or inside this edge, everything below it matches
+                start = child;
+                break;
+            }
+            if (common < child.label.length()) {
+                return List.of();
+            }
+            start = child;
+            offset += common;
+        }
+
+        List<V> result = new ArrayList<>(Math.min(k, size));
+        if (k <= 0 || start.best == Long.MIN_VALUE) {
+            return result;
+        }
+        PriorityQueue<Candidate<V>> queue =
+                new PriorityQueue<>(Comparator.comparingLong((Candidate<V> candidate) -> candidate.weight()).reversed());
+        queue.add(new Candidate<>(start, false, start.best));
+        // A node's best bounds everything below it, so values come off the queue heaviest first
+        while (!queue.isEmpty() && result.size() < k) {
+            Candidate<V> candidate = queue.poll();
+            Node<V> node = candidate.node();
+            if (candidate.value()) {
+                result.add(node.value);
+                continue;
+            }
+            if (node.hasValue) {
+                queue.add(new Candidate<>(node, true, node.weight));
+            }
+            if (node.children != null) {
+                for (Node<V> child : node.children.values()) {
+                    queue.add(new Candidate<>(child, false, child.best));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+}
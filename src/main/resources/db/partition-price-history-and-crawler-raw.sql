@@ -0,0 +1,96 @@
+-- One-off conversion of price_history and crawler_raw to monthly range partitions.
+--
+-- Run once during a maintenance window (the application must be stopped, ddl-auto cannot do this).
+-- After the conversion, the PARTITION_MAINTENANCE job keeps future partitions created ahead of time
+-- and detaches or drops partitions older than the configured retention.
+--
+-- Partition naming: <table>_yYYYYmMM, plus a <table>_default catch-all that should stay empty.
+-- The primary keys become (id, recorded_at) / (id, created) because PostgreSQL requires the
+-- partition key in every unique constraint.
+
+BEGIN;
+
+-- price_history ------------------------------------------------------------------------------
+
+ALTER TABLE public.price_history RENAME TO price_history_legacy;
+ALTER TABLE public.price_history_legacy RENAME CONSTRAINT price_history_pkey TO price_history_legacy_pkey;
+ALTER INDEX IF EXISTS public.idx_price_history_variant_id RENAME TO idx_price_history_legacy_variant_id;
+ALTER INDEX IF EXISTS public.idx_price_history_website_code RENAME TO idx_price_history_legacy_website_code;
+ALTER INDEX IF EXISTS public.idx_price_history_recorded_at RENAME TO idx_price_history_legacy_recorded_at;
+
+CREATE TABLE public.price_history (
+    LIKE public.price_history_legacy INCLUDING CONSTRAINTS,
+    PRIMARY KEY (id, recorded_at)
+) PARTITION BY RANGE (recorded_at);
+
+CREATE INDEX idx_price_history_variant_id ON public.price_history (variant_id);
+CREATE INDEX idx_price_history_website_code ON public.price_history (website_code);
+CREATE INDEX idx_price_history_recorded_at ON public.price_history (recorded_at);
+
+ALTER TABLE public.price_history
+    ADD FOREIGN KEY (variant_id) REFERENCES public.product_variant (id),
+    ADD FOREIGN KEY (website_code) REFERENCES public.crawler_website (code);
+
+-- crawler_raw --------------------------------------------------------------------------------
+
+ALTER TABLE public.crawler_raw RENAME TO crawler_raw_legacy;
+ALTER TABLE public.crawler_raw_legacy RENAME CONSTRAINT crawler_raw_pkey TO crawler_raw_legacy_pkey;
+ALTER INDEX IF EXISTS public.idx_crawler_raw_processed RENAME TO idx_crawler_raw_legacy_processed;
+
+CREATE TABLE public.crawler_raw (
+    LIKE public.crawler_raw_legacy INCLUDING CONSTRAINTS,
+    PRIMARY KEY (id, created)
+) PARTITION BY RANGE (created);
+
+CREATE INDEX idx_crawler_raw_processed ON public.crawler_raw (processed);
+
+ALTER TABLE public.crawler_raw
+    ADD FOREIGN KEY (job_id) REFERENCES public.job (id);
+
+-- Monthly partitions covering existing data plus three months ahead ---------------------------
+
+DO $$
+DECLARE
+    spec record;
+    first_month date;
+    last_month date;
+    month_start date;
+BEGIN
+    FOR spec IN
+        SELECT * FROM (VALUES ('price_history', 'recorded_at'), ('crawler_raw', 'created')) AS t(tbl, col)
+    LOOP
+        EXECUTE format('SELECT date_trunc(''month'', COALESCE(MIN(%I), now()))::date FROM public.%I',
+                       spec.col, spec.tbl || '_legacy')
+            INTO first_month;
+        last_month := (date_trunc('month', now()) + interval '3 months')::date;
+
+        month_start := first_month;
+        WHILE month_start <= last_month LOOP
+            EXECUTE format('CREATE TABLE public.%I PARTITION OF public.%I FOR VALUES FROM (%L) TO (%L)',
+                           spec.tbl || '_y' || to_char(month_start, 'YYYY') || 'm' || to_char(month_start, 'MM'),
+                           spec.tbl, month_start, (month_start + interval '1 month')::date);
+            month_start := (month_start + interval '1 month')::date;
+        END LOOP;
+
+        EXECUTE format('CREATE TABLE public.%I PARTITION OF public.%I DEFAULT', spec.tbl || '_default', spec.tbl);
+    END LOOP;
+END $$;
+
+-- Copy data and give the new tables their own id sequences --------------------------------
+-- (a plain sequence works whether the legacy ids were serial or identity columns)
+
+INSERT INTO public.price_history SELECT * FROM public.price_history_legacy;
+INSERT INTO public.crawler_raw SELECT * FROM public.crawler_raw_legacy;
+
+CREATE SEQUENCE public.price_history_part_id_seq OWNED BY public.price_history.id;
+SELECT setval('public.price_history_part_id_seq', COALESCE((SELECT MAX(id) FROM public.price_history), 0) + 1, false);
+ALTER TABLE public.price_history ALTER COLUMN id SET DEFAULT nextval('public.price_history_part_id_seq');
+
+CREATE SEQUENCE public.crawler_raw_part_id_seq OWNED BY public.crawler_raw.id;
+SELECT setval('public.crawler_raw_part_id_seq', COALESCE((SELECT MAX(id) FROM public.crawler_raw), 0) + 1, false);
+ALTER TABLE public.crawler_raw ALTER COLUMN id SET DEFAULT nextval('public.crawler_raw_part_id_seq');
+
+DROP TABLE public.price_history_legacy;
+DROP TABLE public.crawler_raw_legacy;
+
+COMMIT;
@@ -0,0 +1,169 @@
+package com.rijads.easycrawl.service;
+
+import com.rijads.easycrawl.dto.CursorPageDTO;
+import com.rijads.easycrawl.dto.ProductDTO;
+import com.rijads.easycrawl.dto.ProductVariantDTO;
+import com.rijads.easycrawl.model.CrawlerWebsite;
+import com.rijads.easycrawl.model.Product;
+import com.rijads.easycrawl.model.ProductCategory;
+import com.rijads.easycrawl.model.ProductVariant;
+import com.rijads.easycrawl.repository.CrawlerWebsiteRepository;
+import com.rijads.easycrawl.repository.ProductCategoryRepository;
+import com.rijads.easycrawl.repository.ProductRepository;
+import com.rijads.easycrawl.repository.ProductVariantRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The product listings must run the same number of SQL statements for any page size, i.e. no
+ * per-row lazy loading. Statements are counted per thread, so background jobs don't interfere.
+ * Each test seeds its own category of products and variants, so the larger page really returns
+ * more rows than the smaller one.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.rijads.easycrawl.service.ProductReadModelStatementCountTest$CountingStatementInspector",
+        // A separate context from the other tests, it must not share their search index
+        "search.index-path=target/statement-count-test-index"})
+class ProductReadModelStatementCountTest {
+
+    public static class CountingStatementInspector implements StatementInspector {
+        private static final ThreadLocal<Integer> COUNT = ThreadLocal.withInitial(() -> 0);
+
+        @Override
+        public String inspect(String sql) {
+            COUNT.set(COUNT.get() + 1);
+            return sql;
+        }
+    }
+
+    private static final String CODE = "statement-count-test";
+    private static final int PRODUCTS = 3;
+    private static final int VARIANTS = 3;
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductCategoryRepository categoryRepository;
+    @Autowired
+    private CrawlerWebsiteRepository websiteRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    private final List<Product> products = new ArrayList<>();
+    private final List<ProductVariant> variants = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        LocalDateTime now = LocalDateTime.now();
+        ProductCategory category = new ProductCategory();
+        category.setCode(CODE);
+        category.setName("Statement count test");
+        category = categoryRepository.save(category);
+
+        CrawlerWebsite website = new CrawlerWebsite();
+        website.setCode(CODE);
+        website.setName("Statement count test");
+        website.setUrl("https://" + CODE + ".example");
+        website.setCreated(now);
+        website.setCreatedBy("test");
+        website = websiteRepository.save(website);
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Statement count product " + i);
+            product.setBrand("Statement count");
+            product.setCategory(category);
+            product.setCreated(now);
+            products.add(productRepository.save(product));
+        }
+        for (int i = 0; i < VARIANTS; i++) {
+            ProductVariant variant = new ProductVariant();
+            variant.setProduct(products.get(0));
+            variant.setWebsite(website);
+            variant.setTitle("Statement count variant " + i);
+            variant.setSourceUrl("https://" + CODE + ".example/" + i);
+            variant.setPrice(BigDecimal.valueOf(100 + i));
+            variant.setCreated(now);
+            variants.add(variantRepository.save(variant));
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        variantRepository.deleteAll(variants);
+        productRepository.deleteAll(products);
+        websiteRepository.deleteById(CODE);
+        categoryRepository.deleteById(CODE);
+    }
+
+    private static int statementsOf(Runnable request) {
+        CountingStatementInspector.COUNT.set(0);
+        request.run();
+        return CountingStatementInspector.COUNT.get();
+    }
+
+    @Test
+    void productSearchRunsConstantStatements() {
+        AtomicReference<Page<ProductDTO>> small = new AtomicReference<>();
+        AtomicReference<Page<ProductDTO>> large = new AtomicReference<>();
+        int smallStatements = statementsOf(() -> small.set(
+                productService.searchProducts(null, CODE, null, PageRequest.of(0, 1))));
+        int largeStatements = statementsOf(() -> large.set(
+                productService.searchProducts(null, CODE, null, PageRequest.of(0, 100))));
+
+        assertThat(small.get().getContent()).hasSize(1);
+        assertThat(large.get().getContent()).hasSize(PRODUCTS);
+        // Rows and, when there may be more pages, a count
+        assertThat(smallStatements).isLessThanOrEqualTo(2);
+        assertThat(largeStatements).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void productCursorSliceRunsOneStatement() {
+        AtomicReference<CursorPageDTO<ProductDTO>> small = new AtomicReference<>();
+        AtomicReference<CursorPageDTO<ProductDTO>> large = new AtomicReference<>();
+        int smallStatements = statementsOf(() -> small.set(
+                productService.searchProductSlice(null, CODE, null, null, null, null, 1)));
+        int largeStatements = statementsOf(() -> large.set(
+                productService.searchProductSlice(null, CODE, null, null, null, null, 100)));
+
+        assertThat(small.get().getContent()).hasSize(1);
+        assertThat(large.get().getContent()).hasSize(PRODUCTS);
+        assertThat(smallStatements).isEqualTo(1);
+        assertThat(largeStatements).isEqualTo(1);
+    }
+
+    @Test
+    void variantListingRunsConstantStatements() {
+        Integer productId = products.get(0).getId();
+        AtomicReference<Page<ProductVariantDTO>> small = new AtomicReference<>();
+        AtomicReference<Page<ProductVariantDTO>> large = new AtomicReference<>();
+
+        int smallStatements = statementsOf(() -> small.set(productService.getProductById(
+                productId, null, null, null, null, null, null, null, null, null, PageRequest.of(0, 1))));
+        int largeStatements = statementsOf(() -> large.set(productService.getProductById(
+                productId, null, null, null, null, null, null, null, null, null, PageRequest.of(0, 100))));
+
+        assertThat(small.get().getContent()).hasSize(1);
+        assertThat(large.get().getContent()).hasSize(VARIANTS);
+        assertThat(smallStatements).isLessThanOrEqualTo(2);
+        assertThat(largeStatements).isLessThanOrEqualTo(2);
+    }
+}
@@ -0,0 +1,71 @@
+package com.rijads.easycrawl.specification;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetPaginationTest {
+
+    private static String base64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertBadRequest(String cursor) {
+        assertThatThrownBy(() -> KeysetPagination.Cursor.decode(cursor))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    void cursorRoundTrip() {
+        KeysetPagination.Cursor cursor =
+                new KeysetPagination.Cursor("created", Sort.Direction.ASC, 42, "2024-05-01T10:15:30");
+
+        String encoded = cursor.encode();
+
+        assertThat(encoded).doesNotContain("=", "+", "/");
+        assertThat(KeysetPagination.Cursor.decode(encoded)).isEqualTo(cursor);
+    }
+
+    @Test
+    void cursorValueMayContainSeparatorAndBeEmpty() {
+        KeysetPagination.Cursor withSeparator =
+                new KeysetPagination.Cursor("name", Sort.Direction.DESC, 7, "a|b|c");
+        KeysetPagination.Cursor empty = new KeysetPagination.Cursor("id", Sort.Direction.DESC, 7, "");
+
+        assertThat(KeysetPagination.Cursor.decode(withSeparator.encode())).isEqualTo(withSeparator);
+        assertThat(KeysetPagination.Cursor.decode(empty.encode())).isEqualTo(empty);
+    }
+
+    @Test
+    void invalidCursorsAreBadRequests() {
+        assertBadRequest("not base64 !");
+        assertBadRequest(base64("created|ASC|42"));
+        assertBadRequest(base64("created|SIDEWAYS|42|x"));
+        assertBadRequest(base64("created|ASC|forty-two|x"));
+        assertBadRequest("");
+    }
+
+    @Test
+    void unsupportedSortIsBadRequest() {
+        String cursor = new KeysetPagination.Cursor("password", Sort.Direction.ASC, 1, "x").encode();
+
+        assertThatThrownBy(() -> KeysetPagination.fetch(
+                null, null, cursor, null, null, null, Set.of("created"), Function.identity()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> KeysetPagination.fetch(
+                null, null, null, "password", null, null, Set.of("created"), Function.identity()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+}
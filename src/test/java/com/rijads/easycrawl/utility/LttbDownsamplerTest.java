@@ -0,0 +1,80 @@
+package com.rijads.easycrawl.utility;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LttbDownsamplerTest {
+
+    private static long[] xs(int length) {
+        long[] x = new long[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = i * 86_400L;
+        }
+        return x;
+    }
+
+    @Test
+    void keepsEverythingWhenThresholdIsNotBelowLength() {
+        long[] x = xs(5);
+        double[] y = {1, 2, 3, 4, 5};
+
+        assertThat(LttbDownsampler.downsample(x, y, 5)).containsExactly(0, 1, 2, 3, 4);
+        assertThat(LttbDownsampler.downsample(x, y, 50)).containsExactly(0, 1, 2, 3, 4);
+        assertThat(LttbDownsampler.downsample(x, y, 0)).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void keepsOnlyEndPointsForTinyThresholds() {
+        long[] x = xs(10);
+        double[] y = new double[10];
+
+        assertThat(LttbDownsampler.downsample(x, y, 1)).containsExactly(9);
+        assertThat(LttbDownsampler.downsample(x, y, 2)).containsExactly(0, 9);
+    }
+
+    @Test
+    void handlesEmptyInput() {
+        assertThat(LttbDownsampler.downsample(new long[0], new double[0], 10)).isEmpty();
+    }
+
+    @Test
+    void returnsThresholdAscendingIndicesWithEndPoints() {
+        int length = 1000;
+        long[] x = xs(length);
+        double[] y = new double[length];
+        for (int i = 0; i < length; i++) {
+            y[i] = Math.sin(i / 20.0) * 100;
+        }
+
+        int[] selected = LttbDownsampler.downsample(x, y, 50);
+
+        assertThat(selected).hasSize(50);
+        assertThat(selected[0]).isEqualTo(0);
+        assertThat(selected[49]).isEqualTo(length - 1);
+        for (int i = 1; i < selected.length; i++) {
+            assertThat(selected[i]).isGreaterThan(selected[i - 1]);
+        }
+    }
+
+    @Test
+    void keepsSpikes() {
+        int length = 100;
+        long[] x = xs(length);
+        double[] y = new double[length];
+        for (int i = 0; i < length; i++) {
+            y[i] = 10;
+        }
+        y[37] = 500;
+        y[71] = -200;
+
+        assertThat(LttbDownsampler.downsample(x, y, 10)).contains(37, 71);
+    }
+
+    @Test
+    void rejectsArraysOfDifferentLength() {
+        assertThatThrownBy(() -> LttbDownsampler.downsample(xs(3), new double[2], 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
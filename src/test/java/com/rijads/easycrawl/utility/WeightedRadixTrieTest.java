@@ -0,0 +1,138 @@
+package com.rijads.easycrawl.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeightedRadixTrieTest {
+
+    @Test
+    void putAndGet() {
+        WeightedRadixTrie<String> trie = new WeightedRadixTrie<>();
+        trie.put("samsung", "Samsung", 5);
+        trie.put("sony", "Sony", 3);
+
+        assertThat(trie.size()).isEqualTo(2);
+        assertThat(trie.get("samsung")).isEqualTo("Samsung");
+        assertThat(trie.get("sony")).isEqualTo("Sony");
+        assertThat(trie.get("sam")).isNull();
+        assertThat(trie.get("samsungs")).isNull();
+        assertThat(trie.get("apple")).isNull();
+    }
+
+    @Test
+    void putReplacesValueAndWeight() {
+        WeightedRadixTrie<String> trie = new WeightedRadixTrie<>();
+        trie.put("lg", "LG", 1);
+        trie.put("lenovo", "Lenovo", 5);
+        trie.put("lg", "LG Electronics", 10);
+
+        assertThat(trie.size()).isEqualTo(2);
+        assertThat(trie.get("lg")).isEqualTo("LG Electronics");
+        assertThat(trie.topK("l", 2)).containsExactly("LG Electronics", "Lenovo");
+    }
+
+    @Test
+    void splitsEdgesWhereKeysDiverge() {
+        WeightedRadixTrie<String> trie = new WeightedRadixTrie<>();
+        trie.put("iphone 15 pro", "iPhone 15 Pro", 1);
+        // Leaves the existing edge halfway through
+        trie.put("iphone 14", "iPhone 14", 2);
+        // Ends inside an edge
+        trie.put("iphone", "iPhone", 3);
+
+        assertThat(trie.size()).isEqualTo(3);
+        assertThat(trie.get("iphone 15 pro")).isEqualTo("iPhone 15 Pro");
+        assertThat(trie.get("iphone 14")).isEqualTo("iPhone 14");
+        assertThat(trie.get("iphone")).isEqualTo("iPhone");
+        assertThat(trie.get("iphone 1")).isNull();
+    }
+
+    @Test
+    void removeMergesEdgesBack() {
+        WeightedRadixTrie<String> trie = new WeightedRadixTrie<>();
+        trie.put("galaxy s24", "Galaxy S24", 1);
+        trie.put("galaxy s23", "Galaxy S23", 2);
+        trie.put("galaxy", "Galaxy", 3);
+
+        assertThat(trie.remove("galaxy")).isEqualTo("Galaxy");
+        assertThat(trie.remove("galaxy s23")).isEqualTo("Galaxy S23");
+
+        assertThat(trie.size()).isEqualTo(1);
+        assertThat(trie.get("galaxy")).isNull();
+        assertThat(trie.get("galaxy s23")).isNull();
+        assertThat(trie.get("galaxy s24")).isEqualTo("Galaxy S24");
+        assertThat(trie.topK("gal", 5)).containsExactly("Galaxy S24");
+        assertThat(trie.topK("galaxy s2", 5)).containsExactly("Galaxy S24");
+
+        // The merged edge splits again on the next diverging key
+        trie.put("galaxy a55", "Galaxy A55", 4);
+        assertThat(trie.topK("galaxy ", 5)).containsExactly("Galaxy A55", "Galaxy S24");
+    }
+
+    @Test
+    void removeOfMissingKeyChangesNothing() {
+        WeightedRadixTrie<String> trie = new WeightedRadixTrie<>();
+        trie.put("xiaomi", "Xiaomi", 1);
+
+        assertThat(trie.remove("xiao")).isNull();
+        assertThat(trie.remove("xiaomi 14")).isNull();
+        assertThat(trie.remove("huawei")).isNull();
+        assertThat(trie.size()).isEqualTo(1);
+        assertThat(trie.get("xiaomi")).isEqualTo("Xiaomi");
+    }
+
+    @Test
+    void removeLastKeyEmptiesTheTrie() {
+        WeightedRadixTrie<String> trie = new WeightedRadixTrie<>();
+        trie.put("nokia", "Nokia", 1);
+
+        assertThat(trie.remove("nokia")).isEqualTo("Nokia");
+        assertThat(trie.remove("nokia")).isNull();
+        assertThat(trie.size()).isZero();
+        assertThat(trie.topK("", 5)).isEmpty();
+    }
+
+    @Test
+    void topKReturnsHeaviestMatchesFirst() {
+        WeightedRadixTrie<String> trie = new WeightedRadixTrie<>();
+        trie.put("apple", "Apple", 10);
+        trie.put("apple watch", "Apple Watch", 40);
+        trie.put("apple tv", "Apple TV", 20);
+        trie.put("asus", "Asus", 30);
+        trie.put("acer", "Acer", 50);
+
+        assertThat(trie.topK("a", 3)).containsExactly("Acer", "Apple Watch", "Asus");
+        assertThat(trie.topK("app", 10)).containsExactly("Apple Watch", "Apple TV", "Apple");
+        // Prefix ending inside an edge
+        assertThat(trie.topK("apple w", 10)).containsExactly("Apple Watch");
+        assertThat(trie.topK("", 1)).containsExactly("Acer");
+    }
+
+    @Test
+    void topKWithoutMatches() {
+        WeightedRadixTrie<String> trie = new WeightedRadixTrie<>();
+        trie.put("apple", "Apple", 1);
+
+        assertThat(trie.topK("b", 5)).isEmpty();
+        assertThat(trie.topK("apx", 5)).isEmpty();
+        assertThat(trie.topK("apples", 5)).isEmpty();
+        assertThat(trie.topK("apple", 0)).isEmpty();
+    }
+
+    @Test
+    void topKFollowsWeightChangesAndRemovals() {
+        WeightedRadixTrie<String> trie = new WeightedRadixTrie<>();
+        trie.put("dell", "Dell", 1);
+        trie.put("dyson", "Dyson", 2);
+        trie.put("denon", "Denon", 3);
+
+        trie.put("dell", "Dell", 100);
+        assertThat(trie.topK("d", 1)).isEqualTo(List.of("Dell"));
+
+        trie.remove("dell");
+        assertThat(trie.topK("d", 3)).containsExactly("Denon", "Dyson");
+    }
+}